@@ -28,6 +28,12 @@ package org.hisp.quick;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
 /**
  * Interface responsible for performing batch and regular JDBC operations. Batch
  * insert operations can be achieved with the addObject( Object ) method, which
@@ -78,6 +84,39 @@ public interface BatchHandler<T> extends AutoCloseable
      */
     T findObject( T arg );
 
+    /**
+     * Retrieves the objects matching the unique columns of the given
+     * arguments, using chunked multi-key queries instead of one query per
+     * argument. For exclusive unique columns, objects matching any of the
+     * unique columns of an argument are retrieved.
+     *
+     * @param args the argument objects, unique properties must be populated.
+     * @return the objects found, keyed by the unique values of the argument
+     *         each object matched.
+     */
+    Map<List<Object>, T> findObjects( Collection<T> args );
+
+    /**
+     * Returns a stream of the objects in the table matching the given where
+     * clause. Rows are fetched lazily through a cursor on a separate database
+     * connection as the stream is consumed, so that large tables can be read
+     * in constant memory. The stream must be closed after use.
+     *
+     * @param whereClause the SQL where clause without the where keyword, or
+     *        null to read all rows.
+     * @return a stream of objects.
+     */
+    Stream<T> stream( String whereClause );
+
+    /**
+     * Returns a stream of all objects in the table. The stream must be closed
+     * after use.
+     *
+     * @return a stream of objects.
+     * @see #stream(String)
+     */
+    Stream<T> scan();
+
     /**
      * Updates an object.
      *
@@ -85,6 +124,15 @@ public interface BatchHandler<T> extends AutoCloseable
      */
     void updateObject( T object );
 
+    /**
+     * Adds an object to be updated to the batch handler. Updates are buffered
+     * and executed as set-based update statements when the buffer is full and
+     * on flush, after objects added for insert so far have been inserted.
+     *
+     * @param object the object to update.
+     */
+    void addUpdateObject( T object );
+
     /**
      * Deletes an object.
      *
@@ -92,6 +140,19 @@ public interface BatchHandler<T> extends AutoCloseable
      */
     void deleteObject( T object );
 
+    /**
+     * Adds an object to be deleted to the batch handler. Deletes are buffered
+     * and executed as delete statements matching multiple identifier values
+     * when the buffer is full, on flush, and before the next object is added
+     * for insert or update, after objects added for insert and update so far
+     * have been written. Operations thereby take effect in the order they
+     * were added, e.g. an object deleted and added again is inserted after
+     * the delete.
+     *
+     * @param object the object to delete.
+     */
+    void addDeleteObject( T object );
+
     /**
      * Checks whether this object exists in the database or not.
      *
@@ -100,6 +161,25 @@ public interface BatchHandler<T> extends AutoCloseable
      */
     boolean objectExists( T object );
 
+    /**
+     * Checks which of the given objects exist in the database, using chunked
+     * multi-key queries instead of one query per object.
+     *
+     * @param objects the objects to check.
+     * @return the unique values of the objects which exist.
+     */
+    Set<List<Object>> existingKeys( Collection<T> objects );
+
+    /**
+     * Returns the given objects which do not exist in the database, in their
+     * original order, using chunked multi-key queries instead of one query
+     * per object.
+     *
+     * @param objects the objects to check.
+     * @return the objects which do not exist.
+     */
+    List<T> filterNonExisting( Collection<T> objects );
+
     /**
      * Returns the number of objects currently added to the batch handler
      * buffer.
@@ -108,6 +188,15 @@ public interface BatchHandler<T> extends AutoCloseable
      */
     int getAddObjectCount();
 
+    /**
+     * Returns the number of rows inserted by the statements executed for
+     * added objects so far, as reported by the database. May be lower than
+     * the number of added objects when conflicting objects are ignored.
+     *
+     * @return the number of inserted rows.
+     */
+    long getInsertedObjectCount();
+
     /**
      * Flushes the batch handler by executing a potential remaining statement,
      * and closing the underlying statement object and the database connection.
@@ -28,6 +28,12 @@ package org.hisp.quick;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.quick.batchhandler.AbstractBatchHandler;
+import org.hisp.quick.batchhandler.ParallelBatchHandler;
+
 /**
  * Factory which produces batch handler instances.
  *
@@ -43,4 +49,47 @@ public interface BatchHandlerFactory
      * @return a BatchHandler instance.
      */
     <T> BatchHandler<T> createBatchHandler( Class<? extends BatchHandler<T>> clazz );
+
+    /**
+     * Creates a {@link BatchHandler} which partitions added objects across the
+     * given number of instances of the given BatchHandler class, each using
+     * its own database connection. The default implementation creates the
+     * writers through {@link #createBatchHandler(Class)}.
+     *
+     * @param <T> type.
+     * @param clazz the BatchHandler class to create writers of, must extend
+     *        AbstractBatchHandler.
+     * @param writerCount the number of writers.
+     * @param routing the strategy for routing added objects to writers.
+     * @return a BatchHandler instance.
+     */
+    default <T> BatchHandler<T> createParallelBatchHandler( Class<? extends BatchHandler<T>> clazz, int writerCount, RoutingStrategy routing )
+    {
+        List<AbstractBatchHandler<T>> writers = new ArrayList<>();
+
+        for ( int i = 0; i < writerCount; i++ )
+        {
+            BatchHandler<T> writer = createBatchHandler( clazz );
+
+            if ( !(writer instanceof AbstractBatchHandler) )
+            {
+                throw new IllegalArgumentException( "BatchHandler must extend AbstractBatchHandler: " + clazz.getName() );
+            }
+
+            writers.add( (AbstractBatchHandler<T>) writer );
+        }
+
+        return new ParallelBatchHandler<>( writers, routing );
+    }
+
+    /**
+     * Releases a {@link BatchHandler} created by this factory after use, for
+     * factories which reuse batch handlers. The batch handler must not be used
+     * after it is released. The default implementation has no effect.
+     *
+     * @param batchHandler the BatchHandler to release.
+     */
+    default void releaseBatchHandler( BatchHandler<?> batchHandler )
+    {
+    }
 }
@@ -0,0 +1,68 @@
+package org.hisp.quick;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Interface which decides when the objects buffered by a batch handler are
+ * flushed to the database. The policy is consulted after each object is
+ * added, and is notified after each batch is executed. Implementations
+ * should be thread-safe, as batches may be executed on a background thread.
+ */
+public interface FlushPolicy
+{
+    /**
+     * Indicates whether the current batch should be executed before more
+     * objects are added to it.
+     *
+     * @param rowCount the number of rows in the current batch.
+     * @param length the length in characters of the current batch statement,
+     *        or 0 if not applicable to the insert mode.
+     * @param ageMillis the time in milliseconds since the first row was added
+     *        to the current batch.
+     * @return true if the batch should be executed.
+     */
+    boolean isFlushRequired( int rowCount, int length, long ageMillis );
+
+    /**
+     * Invoked after a batch was executed.
+     *
+     * @param rowCount the number of rows in the batch.
+     * @param length the length in characters of the batch statement, or 0 if
+     *        not applicable to the insert mode.
+     * @param elapsedNanos the time in nanoseconds spent executing the batch.
+     */
+    void onFlush( int rowCount, int length, long elapsedNanos );
+
+    /**
+     * Returns the initial capacity in characters for batch statement buffers.
+     *
+     * @return the initial buffer capacity.
+     */
+    int getBufferCapacity();
+}
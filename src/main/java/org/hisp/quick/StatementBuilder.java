@@ -28,6 +28,8 @@ package org.hisp.quick;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.List;
+
 /**
  * Interface which provides SQL statements. StatementBuilder instances will
  * typically be produced by a factory and be related to a specific DBMS.
@@ -43,6 +45,15 @@ public interface StatementBuilder<T>
      */
     String getInsertStatementOpening();
 
+    /**
+     * Creates the closing of an insert SQL statement, which follows the value
+     * rows and resolves conflicts according to the conflict mode of the batch
+     * handler. Empty for plain insert statements.
+     *
+     * @return the closing of an insert SQL statement.
+     */
+    String getInsertStatementClosing();
+
     /**
      * Creates the opening of an insert SQL statement with no columns defined.
      *
@@ -58,6 +69,27 @@ public interface StatementBuilder<T>
      */
     String getInsertStatementValues( T object );
 
+    /**
+     * Appends the value list for an insert SQL statement to the given builder,
+     * encoding the values directly into it. The default implementation
+     * appends the value list created by {@link #getInsertStatementValues}.
+     *
+     * @param object the object.
+     * @param builder the builder to append to.
+     */
+    default void appendInsertStatementValues( T object, StringBuilder builder )
+    {
+        builder.append( getInsertStatementValues( object ) );
+    }
+
+    /**
+     * Creates a single row insert SQL statement with a parameter placeholder
+     * for each column, to be used as a prepared statement.
+     *
+     * @return a parameterized insert SQL statement.
+     */
+    String getPreparedInsertStatement();
+
     /**
      * Creates a select SQL statement.
      *
@@ -66,6 +98,24 @@ public interface StatementBuilder<T>
      */
     String getSelectStatement( T arg );
 
+    /**
+     * Creates a select SQL statement which returns the rows matching the
+     * unique values of any of the given argument objects.
+     *
+     * @param args the argument objects.
+     * @return a select SQL statement.
+     */
+    String getBulkSelectStatement( List<T> args );
+
+    /**
+     * Creates a select SQL statement which returns all rows of the table, or
+     * the rows matching the given where clause.
+     *
+     * @param whereClause the where clause without the where keyword, or null.
+     * @return a select SQL statement.
+     */
+    String getStreamStatement( String whereClause );
+
     /**
      * Creates an update SQL statement. values.
      *
@@ -74,6 +124,16 @@ public interface StatementBuilder<T>
      */
     String getUpdateStatement( T object );
 
+    /**
+     * Creates a single set-based update SQL statement which updates the rows
+     * matching the identifier values of the given objects with the values of
+     * the objects. The objects must have distinct identifier values.
+     *
+     * @param objects the objects.
+     * @return an update SQL statement.
+     */
+    String getBulkUpdateStatement( List<T> objects );
+
     /**
      * Creates a delete SQL statement.
      *
@@ -82,6 +142,15 @@ public interface StatementBuilder<T>
      */
     String getDeleteStatement( T object );
 
+    /**
+     * Creates a delete SQL statement which deletes the rows matching the
+     * identifier values of any of the given objects.
+     *
+     * @param objects the objects.
+     * @return a delete SQL statement.
+     */
+    String getBulkDeleteStatement( List<T> objects );
+
     /**
      * Creates a select SQL statement.
      *
@@ -90,6 +159,23 @@ public interface StatementBuilder<T>
      */
     String getUniquenessStatement( T object );
 
+    /**
+     * Creates a select SQL statement which returns the unique columns of the
+     * rows matching the unique values of any of the given objects.
+     *
+     * @param objects the objects.
+     * @return a select SQL statement.
+     */
+    String getBulkUniquenessStatement( List<T> objects );
+
+    /**
+     * Creates a select SQL statement which returns the unique columns of all
+     * rows in the table.
+     *
+     * @return a select SQL statement.
+     */
+    String getUniqueValuesStatement();
+
     /**
      * Creates a SQL where / and clause for unique rows.
      *
@@ -98,6 +184,24 @@ public interface StatementBuilder<T>
      */
     String getUniquenessClause( T object );
 
+    /**
+     * Creates a select SQL statement which reserves the given number of values
+     * from the id sequence of the batch handler, returning one value per row.
+     * Returns null if ids are not generated from a sequence in the dialect.
+     *
+     * @param size the number of values to reserve.
+     * @return a select SQL statement, or null.
+     */
+    String getSequenceBlockStatement( int size );
+
+    /**
+     * Returns the maximum number of objects to include in a single bulk
+     * statement for the dialect. Defaults to 1000.
+     *
+     * @return the maximum number of objects in a bulk statement.
+     */
+    int getMaxBulkSize();
+
     /**
      * Returns the name of a SQL double column type.
      *
@@ -30,6 +30,9 @@ package org.hisp.quick;
 
 import java.sql.Connection;
 import java.sql.Statement;
+import java.util.stream.Stream;
+
+import org.hisp.quick.mapper.RowMapper;
 
 /**
  * Interface which wraps a JDBC Connection and Statement and provides caching.
@@ -83,6 +86,18 @@ public interface StatementHolder
      */
     Integer queryForInteger( String sql );
 
+    /**
+     * Executes the given parameterized SQL statement with the given parameters
+     * bound to its placeholders and returns the first column of the first row
+     * in the resulting ResultSet as an Integer. The prepared statement is
+     * cached for reuse by subsequent calls with the same SQL statement.
+     * 
+     * @param sql the SQL statement with placeholders.
+     * @param params the parameters.
+     * @return the value returned by the query.
+     */
+    Integer queryForInteger( String sql, Object... params );
+
     /**
      * Executes the given SQL statement and returns the first column of the first
      * row in the resulting ResultSet as a Double.
@@ -92,6 +107,18 @@ public interface StatementHolder
      */
     Double queryForDouble( String sql );
 
+    /**
+     * Executes the given parameterized SQL statement with the given parameters
+     * bound to its placeholders and returns the first column of the first row
+     * in the resulting ResultSet as a Double. The prepared statement is cached
+     * for reuse by subsequent calls with the same SQL statement.
+     * 
+     * @param sql the SQL statement with placeholders.
+     * @param params the parameters.
+     * @return the value returned by the query.
+     */
+    Double queryForDouble( String sql, Object... params );
+
     /**
      * Executes the given SQL statement and returns the first column of the first
      * row in the resulting ResultSet as a String.
@@ -100,7 +127,34 @@ public interface StatementHolder
      * @return the value returned by the query.
      */
     String queryForString( String sql );
+
+    /**
+     * Executes the given parameterized SQL statement with the given parameters
+     * bound to its placeholders and returns the first column of the first row
+     * in the resulting ResultSet as a String. The prepared statement is cached
+     * for reuse by subsequent calls with the same SQL statement.
+     * 
+     * @param sql the SQL statement with placeholders.
+     * @param params the parameters.
+     * @return the value returned by the query.
+     */
+    String queryForString( String sql, Object... params );
     
+    /**
+     * Executes the given SQL statement and returns a stream of the rows in the
+     * resulting ResultSet mapped with the given RowMapper. Rows are fetched
+     * lazily through a cursor as the stream is consumed. The stream must be
+     * closed after use, which closes the underlying connection if this
+     * StatementHolder is not pooled.
+     * 
+     * @param <T> type.
+     * @param sql the SQL statement.
+     * @param rowMapper the RowMapper.
+     * @param fetchSize the number of rows to fetch at a time.
+     * @return a stream of objects.
+     */
+    <T> Stream<T> stream( String sql, RowMapper<T> rowMapper, int fetchSize );
+
     /**
      * Executes a INSERT, UPDATE or DELETE SQL statement or an SQL statement that
      * returns nothing.
@@ -109,6 +163,17 @@ public interface StatementHolder
      * @return the row count resulting from the operation or nothing.
      */
     int update( String sql );
+
+    /**
+     * Executes a parameterized INSERT, UPDATE or DELETE SQL statement with the
+     * given parameters bound to its placeholders. The prepared statement is
+     * cached for reuse by subsequent calls with the same SQL statement.
+     * 
+     * @param sql the SQL statement with placeholders.
+     * @param params the parameters.
+     * @return the row count resulting from the operation.
+     */
+    int update( String sql, Object... params );
     
     /**
      * Method indicating whether the wrapped Connection is pooled.
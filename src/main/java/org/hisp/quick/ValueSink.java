@@ -0,0 +1,72 @@
+package org.hisp.quick;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.SQLException;
+import java.util.Date;
+
+/**
+ * Receiver of the column values of an object, written in column order. Allows
+ * batch handlers to write primitive values without creating a list and boxing
+ * values for each object. Null values can be passed to the methods taking
+ * object arguments.
+ */
+public interface ValueSink
+{
+    void putInt( int value )
+        throws SQLException;
+
+    void putLong( long value )
+        throws SQLException;
+
+    void putDouble( double value )
+        throws SQLException;
+
+    void putBoolean( boolean value )
+        throws SQLException;
+
+    void putString( String value )
+        throws SQLException;
+
+    void putDate( Date value )
+        throws SQLException;
+
+    void putNull()
+        throws SQLException;
+
+    /**
+     * Writes a value of any type, where the handling is determined by the
+     * class of the value.
+     *
+     * @param value the value, can be null.
+     * @throws SQLException if writing the value failed.
+     */
+    void putObject( Object value )
+        throws SQLException;
+}
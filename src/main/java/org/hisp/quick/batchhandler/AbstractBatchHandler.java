@@ -29,21 +29,40 @@ package org.hisp.quick.batchhandler;
  */
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.quick.BatchHandler;
+import org.hisp.quick.ConflictMode;
+import org.hisp.quick.CopyFormat;
+import org.hisp.quick.DeduplicationScope;
+import org.hisp.quick.FlushPolicy;
+import org.hisp.quick.InsertMode;
 import org.hisp.quick.JdbcConfiguration;
 import org.hisp.quick.StatementBuilder;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.ValueSink;
 import org.hisp.quick.factory.StatementBuilderFactory;
+import org.hisp.quick.flushpolicy.DefaultFlushPolicy;
+import org.hisp.quick.mapper.IndexedRowMapper;
+import org.hisp.quick.mapper.ResultSetStream;
+import org.hisp.quick.mapper.RowMapper;
+import org.hisp.quick.statement.PreparedStatementValueSink;
+import org.hisp.quick.statementbuilder.AbstractStatementBuilder;
+import org.hisp.quick.statementbuilder.PostgreSqlStatementBuilder;
 
 
 /**
@@ -57,24 +76,98 @@ public abstract class AbstractBatchHandler<T>
     private static final Log log = LogFactory.getLog( AbstractBatchHandler.class );
 
     /**
-     * Number of characters in statement accepted by DBMS.
+     * Number of rows in a JDBC batch for the prepared batch insert mode.
      */
-    private static final int MAX_LENGTH = 200000;
+    private static final int MAX_BATCH_ROWS = 1000;
+
+    private static final int DEFAULT_MAX_PENDING_FLUSHES = 2;
+
+    private static final int DEFAULT_DUPLICATE_FILTER_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static final double DEFAULT_DUPLICATE_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final int DEFAULT_EXISTENCE_INDEX_MAX_SIZE = 2000000;
+
+    private static final int DEFAULT_FETCH_SIZE = 1000;
 
     private JdbcConfiguration configuration;
 
+    private InsertMode insertMode = InsertMode.MULTI_ROW;
+
+    private CopyFormat copyFormat = CopyFormat.TEXT;
+
+    private ConflictMode conflictMode = ConflictMode.FAIL;
+
+    private boolean asyncFlush = false;
+
+    private int maxPendingFlushes = DEFAULT_MAX_PENDING_FLUSHES;
+
+    private DeduplicationScope deduplicationScope = DeduplicationScope.BATCH;
+
+    private int duplicateFilterMaxBytes = DEFAULT_DUPLICATE_FILTER_MAX_BYTES;
+
+    private double duplicateFilterFalsePositiveRate = DEFAULT_DUPLICATE_FILTER_FALSE_POSITIVE_RATE;
+
+    private FlushPolicy flushPolicy;
+
+    private FlushPolicy batchFlushPolicy;
+
     private Connection connection;
 
     private Statement statement;
 
+    private PreparedStatement insertStatement;
+
+    private PreparedStatementValueSink insertStatementSink;
+
+    private PostgreSqlCopyWriter copyWriter;
+
+    private AsyncStatementExecutor asyncExecutor;
+
     protected StatementBuilder<T> statementBuilder;
 
     private StringBuilder addObjectSqlBuffer;
 
-    private final Set<String> uniqueObjects = new HashSet<>();
+    private final FingerprintSet uniqueObjects = new FingerprintSet();
+
+    private final UniqueKeyHasher uniqueKeyHasher = new UniqueKeyHasher();
+
+    private BloomFilter duplicateFilter;
+
+    private boolean preloadExistenceIndex = false;
+
+    private int existenceIndexMaxSize = DEFAULT_EXISTENCE_INDEX_MAX_SIZE;
+
+    private ExistenceIndex<T> existenceIndex;
+
+    private BiConsumer<T, Long> generatedKeyConsumer;
+
+    private boolean retrieveGeneratedKeys = false;
+
+    private final List<T> generatedKeyObjects = new ArrayList<>();
+
+    private int idBlockSize = 0;
+
+    private String idBlockSql;
+
+    private SequenceBlockAllocator idAllocator;
+
+    private long allocatedId;
+
+    private int fetchSize = DEFAULT_FETCH_SIZE;
 
     private int addObjectCount = 0;
 
+    private long insertedObjectCount = 0;
+
+    private long lastFlushInsertedObjectCount = 0;
+
+    private final List<T> updateObjects = new ArrayList<>();
+
+    private final List<T> deleteObjects = new ArrayList<>();
+
+    private long batchStartNanos = 0;
+
     private boolean closed = false;
 
     // -------------------------------------------------------------------------
@@ -99,16 +192,88 @@ public abstract class AbstractBatchHandler<T>
     @Override
     public final BatchHandler<T> init()
     {
+        if ( InsertMode.COPY == insertMode && StatementDialect.POSTGRESQL != configuration.getDialect() )
+        {
+            throw new IllegalStateException( "Copy insert mode is not supported for dialect: " + configuration.getDialect() );
+        }
+
+        if ( InsertMode.COPY == insertMode && ConflictMode.FAIL != conflictMode )
+        {
+            throw new IllegalStateException( "Copy insert mode is not supported for conflict mode: " + conflictMode );
+        }
+
+        idBlockSql = idBlockSize > 0 ? statementBuilder.getSequenceBlockStatement( idBlockSize ) : null;
+
+        if ( generatedKeyConsumer != null && ( getAutoIncrementColumn() == null ||
+            ( InsertMode.COPY == insertMode && idBlockSql == null ) || ConflictMode.FAIL != conflictMode ) )
+        {
+            throw new IllegalStateException( "Generated keys require an auto-increment column, " +
+                "an insert mode other than copy unless ids are allocated and the fail conflict mode" );
+        }
+
+        retrieveGeneratedKeys = generatedKeyConsumer != null && idBlockSql == null;
+
+        resetState();
+
         try
         {
             connection = configuration.getDataSource().getConnection();
 
-            this.addObjectSqlBuffer = new StringBuilder( MAX_LENGTH );
+            if ( idBlockSql != null )
+            {
+                idAllocator = SequenceBlockAllocator.getInstance( configuration.getDataSource(), getIdSequenceName() );
+            }
+
             this.addObjectCount = 0;
 
+            this.batchFlushPolicy = flushPolicy != null ? flushPolicy : getDefaultFlushPolicy();
+
+            if ( DeduplicationScope.HANDLER == deduplicationScope && InsertMode.COPY != insertMode &&
+                ConflictMode.FAIL == conflictMode )
+            {
+                duplicateFilter = new BloomFilter( duplicateFilterMaxBytes, duplicateFilterFalsePositiveRate );
+            }
+
             statement = connection.createStatement();
 
-            this.addObjectSqlBuffer.append( statementBuilder.getInsertStatementOpening() );
+            if ( preloadExistenceIndex && getUniqueColumns() != null && !getUniqueColumns().isEmpty() )
+            {
+                loadExistenceIndex();
+            }
+
+            if ( InsertMode.PREPARED_BATCH == insertMode )
+            {
+                insertStatement = retrieveGeneratedKeys ?
+                    connection.prepareStatement( statementBuilder.getPreparedInsertStatement(), getGeneratedKeyColumns() ) :
+                    connection.prepareStatement( statementBuilder.getPreparedInsertStatement() );
+
+                insertStatementSink = new PreparedStatementValueSink( insertStatement );
+            }
+            else if ( InsertMode.COPY == insertMode )
+            {
+                String sql = ((PostgreSqlStatementBuilder<T>) statementBuilder).getCopyStatement( copyFormat );
+
+                log.debug( "Copy SQL: " + sql );
+
+                copyWriter = PostgreSqlCopyWriter.open( connection, sql, copyFormat );
+            }
+            else if ( asyncFlush && !retrieveGeneratedKeys )
+            {
+                asyncExecutor = new AsyncStatementExecutor( statement, batchFlushPolicy,
+                    maxPendingFlushes, batchFlushPolicy.getBufferCapacity() );
+
+                this.addObjectSqlBuffer = asyncExecutor.getBuffer()
+                    .append( statementBuilder.getInsertStatementOpening() );
+            }
+            else
+            {
+                if ( addObjectSqlBuffer == null || addObjectSqlBuffer.capacity() < batchFlushPolicy.getBufferCapacity() )
+                {
+                    addObjectSqlBuffer = new StringBuilder( batchFlushPolicy.getBufferCapacity() );
+                }
+
+                this.addObjectSqlBuffer.append( statementBuilder.getInsertStatementOpening() );
+            }
 
             return this;
         }
@@ -129,33 +294,69 @@ public abstract class AbstractBatchHandler<T>
     @Override
     public final boolean addObject( T object )
     {
+        executeQueuedDeletes();
+
         if ( objectExistsInternal( object ) )
         {
-            log.warn( "Duplicate object: " + object );
+            if ( ConflictMode.UPDATE != conflictMode )
+            {
+                log.warn( "Duplicate object: " + object );
 
-            return false;
-        }
+                return false;
+            }
 
-        addObjectSqlBuffer.append( statementBuilder.getInsertStatementValues( object ) );
+            executeDuplicateUpsert();
 
-        addObjectCount++;
+            objectExistsInternal( object );
+        }
 
-        if ( addObjectSqlBuffer.length() > MAX_LENGTH )
+        if ( existenceIndex != null )
         {
             try
             {
-                addObjectSqlBuffer.deleteCharAt( addObjectSqlBuffer.length() - 1 );
+                addToExistenceIndex( object );
+            }
+            catch ( SQLException ex )
+            {
+                throw new RuntimeException( "Failed to write unique values", ex );
+            }
+        }
 
-                statement.executeUpdate( addObjectSqlBuffer.toString() );
+        if ( idAllocator != null )
+        {
+            allocateId( object );
+        }
+        else if ( retrieveGeneratedKeys )
+        {
+            generatedKeyObjects.add( object );
+        }
 
-                log.debug( "Add SQL: " + addObjectSqlBuffer );
+        if ( insertStatement != null )
+        {
+            addBatchObject( object );
 
-                addObjectSqlBuffer = new StringBuilder( MAX_LENGTH )
-                    .append( statementBuilder.getInsertStatementOpening() );
+            return true;
+        }
 
-                addObjectCount = 0;
+        if ( copyWriter != null )
+        {
+            addCopyObject( object );
 
-                uniqueObjects.clear();
+            return true;
+        }
+
+        statementBuilder.appendInsertStatementValues( object, addObjectSqlBuffer );
+
+        if ( addObjectCount++ == 0 )
+        {
+            batchStartNanos = System.nanoTime();
+        }
+
+        if ( isFlushRequired( addObjectSqlBuffer.length() ) )
+        {
+            try
+            {
+                executeAddObjectSql();
             }
             catch ( SQLException ex )
             {
@@ -173,6 +374,11 @@ public abstract class AbstractBatchHandler<T>
     @Override
     public boolean insertObject( T object )
     {
+        if ( idAllocator != null )
+        {
+            allocateId( object );
+        }
+
         String sql = statementBuilder.getInsertStatementOpening() +
             statementBuilder.getInsertStatementValues( object );
 
@@ -181,13 +387,36 @@ public abstract class AbstractBatchHandler<T>
             return false;
         }
 
-        sql = sql.substring( 0, sql.length() - 1 );
+        sql = sql.substring( 0, sql.length() - 1 ) + statementBuilder.getInsertStatementClosing();
 
         log.debug( "Insert SQL: " + sql );
 
         try
         {
-            return statement.execute( sql );
+            awaitPendingStatements();
+
+            final boolean result;
+
+            if ( retrieveGeneratedKeys )
+            {
+                result = statement.executeUpdate( sql, getGeneratedKeyColumns() ) > 0;
+
+                try ( ResultSet keys = statement.getGeneratedKeys() )
+                {
+                    if ( keys.next() )
+                    {
+                        generatedKeyConsumer.accept( object, keys.getLong( 1 ) );
+                    }
+                }
+            }
+            else
+            {
+                result = statement.execute( sql );
+            }
+
+            addToExistenceIndex( object );
+
+            return result;
         }
         catch ( SQLException ex )
         {
@@ -211,9 +440,11 @@ public abstract class AbstractBatchHandler<T>
 
         try
         {
+            awaitPendingStatements();
+
             ResultSet resultSet = statement.executeQuery( sql );
 
-            return resultSet.next() ? mapRow( resultSet ) : null;
+            return resultSet.next() ? getRowMapper().mapRow( resultSet ) : null;
         }
         catch ( SQLException ex )
         {
@@ -225,6 +456,104 @@ public abstract class AbstractBatchHandler<T>
         }
     }
 
+    @Override
+    public final Map<List<Object>, T> findObjects( Collection<T> args )
+    {
+        final Map<List<Object>, T> objects = new HashMap<>();
+
+        if ( getUniqueColumns() == null || getUniqueColumns().isEmpty() )
+        {
+            return objects;
+        }
+
+        final List<T> list = new ArrayList<>( args );
+        final int chunkSize = statementBuilder.getMaxBulkSize();
+
+        for ( int from = 0; from < list.size(); from += chunkSize )
+        {
+            final List<T> chunk = list.subList( from, Math.min( from + chunkSize, list.size() ) );
+
+            final String sql = statementBuilder.getBulkSelectStatement( chunk );
+
+            log.debug( "Bulk select SQL: " + sql );
+
+            try
+            {
+                awaitPendingStatements();
+
+                try ( ResultSet resultSet = statement.executeQuery( sql ) )
+                {
+                    final RowMapper<T> rowMapper = getRowMapper();
+                    final UniqueKeyIndex<T> index = new UniqueKeyIndex<>( this, resultSet.getMetaData() );
+
+                    for ( T arg : chunk )
+                    {
+                        index.add( arg );
+                    }
+
+                    while ( resultSet.next() )
+                    {
+                        final List<T> matches = index.match( resultSet );
+
+                        if ( !matches.isEmpty() )
+                        {
+                            final T object = rowMapper.mapRow( resultSet );
+
+                            for ( T arg : matches )
+                            {
+                                objects.put( getUniqueValues( arg ), object );
+                            }
+                        }
+                    }
+                }
+            }
+            catch ( SQLException ex )
+            {
+                log.info( "Bulk select SQL: " + sql );
+
+                close();
+
+                throw new RuntimeException( "Failed to find objects", ex );
+            }
+        }
+
+        return objects;
+    }
+
+    @Override
+    public final Stream<T> stream( String whereClause )
+    {
+        final String sql = statementBuilder.getStreamStatement( whereClause );
+
+        log.debug( "Stream SQL: " + sql );
+
+        Connection streamConnection = null;
+
+        try
+        {
+            streamConnection = configuration.getDataSource().getConnection();
+
+            final Connection closeable = streamConnection;
+
+            return ResultSetStream.stream( streamConnection, sql, getStreamFetchSize(), getRowMapper(),
+                () -> closeQuietly( closeable ) );
+        }
+        catch ( SQLException ex )
+        {
+            log.info( "Stream SQL: " + sql );
+
+            closeQuietly( streamConnection );
+
+            throw new RuntimeException( "Failed to stream objects", ex );
+        }
+    }
+
+    @Override
+    public final Stream<T> scan()
+    {
+        return stream( null );
+    }
+
     @Override
     public final void updateObject( T object )
     {
@@ -234,7 +563,11 @@ public abstract class AbstractBatchHandler<T>
 
         try
         {
+            awaitPendingStatements();
+
             statement.executeUpdate( sql );
+
+            invalidateExistenceIndex( true );
         }
         catch ( SQLException ex )
         {
@@ -246,6 +579,30 @@ public abstract class AbstractBatchHandler<T>
         }
     }
 
+    @Override
+    public final void addUpdateObject( T object )
+    {
+        executeQueuedDeletes();
+
+        invalidateExistenceIndex( true );
+
+        updateObjects.add( object );
+
+        if ( updateObjects.size() >= statementBuilder.getMaxBulkSize() && copyWriter == null )
+        {
+            try
+            {
+                executeUpdateObjects();
+            }
+            catch ( SQLException ex )
+            {
+                close();
+
+                throw new RuntimeException( "Failed to update objects", ex );
+            }
+        }
+    }
+
     @Override
     public final void deleteObject( T object )
     {
@@ -255,7 +612,11 @@ public abstract class AbstractBatchHandler<T>
 
         try
         {
+            awaitPendingStatements();
+
             statement.executeUpdate( sql );
+
+            invalidateExistenceIndex( false );
         }
         catch ( SQLException ex )
         {
@@ -267,6 +628,28 @@ public abstract class AbstractBatchHandler<T>
         }
     }
 
+    @Override
+    public final void addDeleteObject( T object )
+    {
+        invalidateExistenceIndex( false );
+
+        deleteObjects.add( object );
+
+        if ( deleteObjects.size() >= statementBuilder.getMaxBulkSize() && copyWriter == null )
+        {
+            try
+            {
+                executeDeleteObjects();
+            }
+            catch ( SQLException ex )
+            {
+                close();
+
+                throw new RuntimeException( "Failed to delete objects", ex );
+            }
+        }
+    }
+
     @Override
     public final boolean objectExists( T object )
     {
@@ -275,12 +658,26 @@ public abstract class AbstractBatchHandler<T>
             return false;
         }
 
+        if ( existenceIndex != null )
+        {
+            try
+            {
+                return existenceIndex.contains( object );
+            }
+            catch ( SQLException ex )
+            {
+                throw new RuntimeException( "Failed to write unique values", ex );
+            }
+        }
+
         final String sql = statementBuilder.getUniquenessStatement( object );
 
         log.debug( "Unique SQL: " + sql );
 
         try
         {
+            awaitPendingStatements();
+
             return statement.executeQuery( sql ).next();
         }
         catch ( SQLException ex )
@@ -293,12 +690,59 @@ public abstract class AbstractBatchHandler<T>
         }
     }
 
+    @Override
+    public final Set<List<Object>> existingKeys( Collection<T> objects )
+    {
+        final Set<List<Object>> keys = new LinkedHashSet<>();
+
+        for ( T object : findByExistence( objects, true ) )
+        {
+            keys.add( getUniqueValues( object ) );
+        }
+
+        return keys;
+    }
+
+    @Override
+    public final List<T> filterNonExisting( Collection<T> objects )
+    {
+        return findByExistence( objects, false );
+    }
+
     @Override
     public int getAddObjectCount()
     {
         return addObjectCount;
     }
 
+    /**
+     * Returns the number of rows inserted by the statements executed for
+     * added objects so far, as reported by the database. Includes statements
+     * executed asynchronously which have completed. Rows of a JDBC batch
+     * reported as successful without an update count are counted as one.
+     *
+     * @return the number of inserted rows.
+     */
+    @Override
+    public long getInsertedObjectCount()
+    {
+        return insertedObjectCount + ( asyncExecutor != null ? asyncExecutor.getUpdateCount() : 0 );
+    }
+
+    /**
+     * Returns the number of rows inserted by the last call to {@link #flush()},
+     * as reported by the database. Counts the remaining statement, batch or
+     * copy executed by the flush, and asynchronous statements which completed
+     * during the flush, but not statements executed earlier as the flush
+     * policy required.
+     *
+     * @return the number of rows inserted by the last flush.
+     */
+    public long getLastFlushInsertedObjectCount()
+    {
+        return lastFlushInsertedObjectCount;
+    }
+
     @Override
     public final void flush()
     {
@@ -306,19 +750,47 @@ public abstract class AbstractBatchHandler<T>
             throw new RuntimeException("Cannot flush a closed connection!");
         }
 
+        final long insertedBeforeFlush = getInsertedObjectCount();
+
         try {
-            if ( addObjectSqlBuffer != null && addObjectSqlBuffer.length() > 2 && addObjectCount > 0 )
+            if ( insertStatement != null && addObjectCount > 0 )
             {
-                addObjectSqlBuffer.deleteCharAt( addObjectSqlBuffer.length() - 1 );
+                log.debug( "Flush batch rows: " + addObjectCount );
 
-                log.debug( "Flush SQL: " + addObjectSqlBuffer );
+                executeInsertBatch();
+            }
+            else if ( copyWriter != null )
+            {
+                long rows = copyWriter.endCopy();
 
-                statement.executeUpdate( addObjectSqlBuffer.toString() );
+                copyWriter = null;
+
+                insertedObjectCount += rows;
+
+                log.debug( "Copied rows: " + rows );
 
                 addObjectCount = 0;
 
                 uniqueObjects.clear();
             }
+            else if ( addObjectSqlBuffer != null && addObjectSqlBuffer.length() > 2 && addObjectCount > 0 )
+            {
+                log.debug( "Flush SQL: " + addObjectSqlBuffer );
+
+                executeAddObjectSql();
+            }
+
+            if ( !updateObjects.isEmpty() )
+            {
+                executeUpdateObjects();
+            }
+
+            if ( !deleteObjects.isEmpty() )
+            {
+                executeDeleteObjects();
+            }
+
+            awaitPendingStatements();
         }
         catch ( SQLException ex )
         {
@@ -329,6 +801,8 @@ public abstract class AbstractBatchHandler<T>
         finally
         {
             close();
+
+            lastFlushInsertedObjectCount = insertedObjectCount - insertedBeforeFlush;
         }
     }
 
@@ -337,57 +811,782 @@ public abstract class AbstractBatchHandler<T>
     // -------------------------------------------------------------------------
 
     /**
-     * Closes the current statement and connection.
+     * Executes the multi-row insert statement in the add object buffer, or
+     * submits it to the asynchronous executor and continues with a fresh
+     * buffer, and starts a new insert statement.
+     *
+     * @throws SQLException if the statement, or a previously submitted
+     *         statement, failed.
      */
-    public void close()
+    private void executeAddObjectSql()
+        throws SQLException
     {
+        addObjectSqlBuffer.deleteCharAt( addObjectSqlBuffer.length() - 1 )
+            .append( statementBuilder.getInsertStatementClosing() );
+
+        if ( asyncExecutor != null )
+        {
+            asyncExecutor.submit( addObjectSqlBuffer, addObjectCount );
+
+            addObjectSqlBuffer = asyncExecutor.getBuffer();
+        }
+        else
+        {
+            long start = System.nanoTime();
+
+            int rows = retrieveGeneratedKeys ?
+                statement.executeUpdate( addObjectSqlBuffer.toString(), getGeneratedKeyColumns() ) :
+                statement.executeUpdate( addObjectSqlBuffer.toString() );
+
+            if ( retrieveGeneratedKeys )
+            {
+                deliverGeneratedKeys( statement.getGeneratedKeys() );
+            }
+
+            batchFlushPolicy.onFlush( addObjectCount, addObjectSqlBuffer.length(), System.nanoTime() - start );
+
+            insertedObjectCount += rows;
+
+            log.debug( "Add SQL: " + addObjectSqlBuffer );
+            log.debug( "Inserted rows: " + rows + ", objects: " + addObjectCount );
+
+            addObjectSqlBuffer.setLength( 0 );
+        }
+
+        addObjectSqlBuffer.append( statementBuilder.getInsertStatementOpening() );
+
+        addObjectCount = 0;
+
+        uniqueObjects.clear();
+    }
+
+    /**
+     * Executes the current JDBC batch of the prepared insert statement.
+     *
+     * @throws SQLException if the batch failed.
+     */
+    private void executeInsertBatch()
+        throws SQLException
+    {
+        long start = System.nanoTime();
+
+        int[] counts = insertStatement.executeBatch();
+
+        batchFlushPolicy.onFlush( addObjectCount, 0, System.nanoTime() - start );
+
+        if ( retrieveGeneratedKeys )
+        {
+            deliverGeneratedKeys( insertStatement.getGeneratedKeys() );
+        }
+
+        int rows = 0;
+
+        for ( int count : counts )
+        {
+            rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max( count, 0 );
+        }
+
+        insertedObjectCount += rows;
+
+        log.debug( "Inserted rows: " + rows + ", objects: " + addObjectCount );
+
+        addObjectCount = 0;
+
+        uniqueObjects.clear();
+    }
+
+    /**
+     * Allocates the id of the given object from the sequence block allocator,
+     * to be written by {@link #writeInsertValues(Object, ValueSink)}, and
+     * passes it to the generated key consumer if set.
+     *
+     * @param object the object.
+     */
+    private void allocateId( T object )
+    {
+        try
+        {
+            allocatedId = idAllocator.nextId( connection, idBlockSql );
+        }
+        catch ( SQLException ex )
+        {
+            log.info( "Sequence block SQL: " + idBlockSql );
+
+            close();
+
+            throw new RuntimeException( "Failed to allocate id", ex );
+        }
+
+        if ( generatedKeyConsumer != null )
+        {
+            generatedKeyConsumer.accept( object, allocatedId );
+        }
+    }
+
+    /**
+     * Returns the row mapper of this batch handler for the rows of a single
+     * result set, which resolves column indexes once if this batch handler
+     * implements {@link IndexedRowMapper}.
+     *
+     * @return a row mapper.
+     */
+    @SuppressWarnings( "unchecked" )
+    private RowMapper<T> getRowMapper()
+    {
+        return this instanceof IndexedRowMapper ? IndexedRowMapper.resolving( (IndexedRowMapper<T>) this ) : this::mapRow;
+    }
+
+    /**
+     * Returns the fetch size of streamed queries, which for MySQL is the value
+     * which makes the driver stream rows instead of loading all rows into
+     * memory.
+     *
+     * @return the fetch size.
+     */
+    private int getStreamFetchSize()
+    {
+        return StatementDialect.MYSQL == configuration.getDialect() ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    /**
+     * Closes the given connection, ignoring exceptions.
+     *
+     * @param connection the connection, may be null.
+     */
+    private void closeQuietly( Connection connection )
+    {
+        if ( connection != null )
+        {
+            try
+            {
+                connection.close();
+            }
+            catch ( SQLException ex )
+            {
+                log.warn( "Failed to close stream connection", ex );
+            }
+        }
+    }
+
+    /**
+     * Returns the auto-increment column as the column array for which the
+     * driver returns generated keys.
+     *
+     * @return the generated key columns.
+     */
+    private String[] getGeneratedKeyColumns()
+    {
+        return new String[] { getAutoIncrementColumn() };
+    }
+
+    /**
+     * Passes the keys generated for the executed objects to the generated key
+     * consumer, in the order the objects were added, and clears the executed
+     * objects.
+     *
+     * @param resultSet the result set holding the generated keys.
+     * @throws SQLException if reading the generated keys failed.
+     */
+    private void deliverGeneratedKeys( ResultSet resultSet )
+        throws SQLException
+    {
+        int i = 0;
+
+        try ( ResultSet keys = resultSet )
+        {
+            while ( keys.next() && i < generatedKeyObjects.size() )
+            {
+                generatedKeyConsumer.accept( generatedKeyObjects.get( i++ ), keys.getLong( 1 ) );
+            }
+        }
+
+        if ( i != generatedKeyObjects.size() )
+        {
+            log.warn( "Generated keys: " + i + ", objects: " + generatedKeyObjects.size() );
+        }
+
+        generatedKeyObjects.clear();
+    }
+
+    /**
+     * Indicates whether the flush policy requires the current batch to be
+     * executed.
+     *
+     * @param length the length of the current batch statement, or 0 if not
+     *        applicable to the insert mode.
+     * @return true if the current batch should be executed.
+     */
+    private boolean isFlushRequired( int length )
+    {
+        long ageMillis = (System.nanoTime() - batchStartNanos) / 1000000;
+
+        return batchFlushPolicy.isFlushRequired( addObjectCount, length, ageMillis );
+    }
+
+    /**
+     * Returns the flush policy used when none is set, which for the prepared
+     * batch insert mode flushes batches of 1000 rows and otherwise flushes
+     * statements at the default maximum length.
+     *
+     * @return the default flush policy.
+     */
+    private FlushPolicy getDefaultFlushPolicy()
+    {
+        return InsertMode.PREPARED_BATCH == insertMode ?
+            new DefaultFlushPolicy( MAX_BATCH_ROWS, 0, 0 ) : new DefaultFlushPolicy();
+    }
+
+    /**
+     * Waits for statements submitted to the asynchronous executor to complete,
+     * so that the statement can be used from the calling thread.
+     *
+     * @throws SQLException if a submitted statement failed.
+     */
+    private void awaitPendingStatements()
+        throws SQLException
+    {
+        if ( asyncExecutor != null )
+        {
+            asyncExecutor.await();
+        }
+    }
+
+    /**
+     * Executes the objects added to the current insert statement or batch
+     * before an object with the same unique values is added in the update
+     * conflict mode, as a single upsert statement cannot affect a row twice.
+     * This lets the values of the last added object take effect.
+     */
+    private void executeDuplicateUpsert()
+    {
+        try
+        {
+            executePendingInserts();
+        }
+        catch ( SQLException ex )
+        {
+            close();
+
+            throw new RuntimeException( "Failed to add objects", ex );
+        }
+    }
+
+    /**
+     * Executes the objects added to the current insert statement or batch and
+     * waits for pending statements, so that subsequent statements see all
+     * objects added so far. Does not apply to an active copy operation.
+     */
+    private void executePendingInserts()
+        throws SQLException
+    {
+        if ( insertStatement != null && addObjectCount > 0 )
+        {
+            executeInsertBatch();
+        }
+        else if ( addObjectSqlBuffer != null && addObjectCount > 0 )
+        {
+            executeAddObjectSql();
+        }
+
+        awaitPendingStatements();
+    }
+
+    /**
+     * Executes the buffered updates as bulk update statements. Objects are
+     * split into chunks of at most the maximum bulk size, and a new chunk is
+     * started when an object has the same identifier values as an object in
+     * the current chunk, so that later updates of a row take effect.
+     */
+    private void executeUpdateObjects()
+        throws SQLException
+    {
+        executePendingInserts();
+
+        final int chunkSize = statementBuilder.getMaxBulkSize();
+        final int capacity = Math.min( updateObjects.size(), chunkSize );
+        final List<T> chunk = new ArrayList<>( capacity );
+        final FingerprintSet identifiers = new FingerprintSet( capacity );
+
+        for ( T object : updateObjects )
+        {
+            uniqueKeyHasher.reset();
+
+            writeIdentifierValues( object, uniqueKeyHasher );
+
+            if ( chunk.size() >= chunkSize || !identifiers.add( uniqueKeyHasher.getHigh(), uniqueKeyHasher.getLow() ) )
+            {
+                executeBulkUpdate( chunk );
+
+                chunk.clear();
+                identifiers.clear();
+                identifiers.add( uniqueKeyHasher.getHigh(), uniqueKeyHasher.getLow() );
+            }
+
+            chunk.add( object );
+        }
+
+        if ( !chunk.isEmpty() )
+        {
+            executeBulkUpdate( chunk );
+        }
+
+        updateObjects.clear();
+    }
+
+    /**
+     * Executes the buffered deletes as bulk delete statements of at most the
+     * maximum bulk size, after executing buffered inserts and updates.
+     */
+    private void executeDeleteObjects()
+        throws SQLException
+    {
+        if ( !updateObjects.isEmpty() )
+        {
+            executeUpdateObjects();
+        }
+        else
+        {
+            executePendingInserts();
+        }
+
+        final int chunkSize = statementBuilder.getMaxBulkSize();
+
+        for ( int from = 0; from < deleteObjects.size(); from += chunkSize )
+        {
+            final String sql = statementBuilder.getBulkDeleteStatement(
+                deleteObjects.subList( from, Math.min( from + chunkSize, deleteObjects.size() ) ) );
+
+            try
+            {
+                int rows = statement.executeUpdate( sql );
+
+                log.debug( "Bulk delete rows: " + rows );
+            }
+            catch ( SQLException ex )
+            {
+                log.info( "Bulk delete SQL: " + sql );
+
+                throw ex;
+            }
+        }
+
+        deleteObjects.clear();
+    }
+
+    /**
+     * Executes the buffered deletes before an object is added for insert or
+     * update, so that the object is not written before deletes added earlier.
+     * Does not apply to an active copy operation.
+     */
+    private void executeQueuedDeletes()
+    {
+        if ( deleteObjects.isEmpty() || copyWriter != null )
+        {
+            return;
+        }
+
+        try
+        {
+            executeDeleteObjects();
+        }
+        catch ( SQLException ex )
+        {
+            close();
+
+            throw new RuntimeException( "Failed to delete objects", ex );
+        }
+    }
+
+    private void executeBulkUpdate( List<T> objects )
+        throws SQLException
+    {
+        final String sql = statementBuilder.getBulkUpdateStatement( objects );
+
+        try
+        {
+            int rows = statement.executeUpdate( sql );
+
+            log.debug( "Bulk update rows: " + rows + ", objects: " + objects.size() );
+        }
+        catch ( SQLException ex )
+        {
+            log.info( "Bulk update SQL: " + sql );
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Binds the values of the given object to the prepared insert statement
+     * and adds it to the current JDBC batch. Executes the batch if the
+     * number of rows reaches the maximum batch size.
+     *
+     * @param object the object.
+     */
+    private void addBatchObject( T object )
+    {
+        try
+        {
+            insertStatementSink.reset();
+
+            writeInsertValues( object, insertStatementSink );
+
+            insertStatement.addBatch();
+
+            if ( addObjectCount++ == 0 )
+            {
+                batchStartNanos = System.nanoTime();
+            }
+
+            if ( isFlushRequired( 0 ) )
+            {
+                log.debug( "Add batch rows: " + addObjectCount );
+
+                executeInsertBatch();
+            }
+        }
+        catch ( SQLException ex )
+        {
+            log.info( "Add batch SQL: " + statementBuilder.getPreparedInsertStatement() );
+
+            close();
+
+            throw new RuntimeException( "Failed to add objects", ex );
+        }
+    }
+
+    /**
+     * Encodes the values of the given object into the active copy operation.
+     * The copy is ended on flush, which means that duplicates are checked
+     * across all objects added to the batch handler.
+     *
+     * @param object the object.
+     */
+    private void addCopyObject( T object )
+    {
+        try
+        {
+            writeInsertValues( object, copyWriter );
+
+            copyWriter.endRow();
+
+            addObjectCount++;
+        }
+        catch ( SQLException ex )
+        {
+            close();
+
+            throw new RuntimeException( "Failed to copy objects", ex );
+        }
+    }
+
+    /**
+     * Closes the current statement and connection.
+     */
+    public void close()
+    {
+        if ( asyncExecutor != null )
+        {
+            asyncExecutor.shutdown();
+
+            insertedObjectCount += asyncExecutor.getUpdateCount();
+
+            asyncExecutor = null;
+
+            addObjectSqlBuffer = null;
+        }
+
+        if ( copyWriter != null )
+        {
+            try
+            {
+                copyWriter.cancelCopy();
+            }
+            catch ( SQLException ex )
+            {
+                ex.printStackTrace();
+            }
+
+            copyWriter = null;
+        }
+
+        if ( insertStatement != null )
+        {
+            try
+            {
+                insertStatement.close();
+            }
+            catch ( SQLException ex )
+            {
+                ex.printStackTrace();
+            }
+        }
+
         if ( statement != null )
         {
-            try
+            try
+            {
+                statement.close();
+            }
+            catch ( SQLException ex )
+            {
+                ex.printStackTrace();
+            }
+        }
+
+        if ( connection != null )
+        {
+            try
+            {
+                connection.close();
+            }
+            catch ( SQLException ex )
+            {
+                ex.printStackTrace();
+            }
+        }
+
+        existenceIndex = null;
+        idAllocator = null;
+        generatedKeyObjects.clear();
+        closed = true;
+    }
+
+    /**
+     * Restores the default settings of this batch handler, so that a closed
+     * handler can be reused as if it was newly created. Must be invoked
+     * before {@link #init()}.
+     */
+    public void resetSettings()
+    {
+        insertMode = InsertMode.MULTI_ROW;
+        copyFormat = CopyFormat.TEXT;
+        conflictMode = ConflictMode.FAIL;
+        asyncFlush = false;
+        maxPendingFlushes = DEFAULT_MAX_PENDING_FLUSHES;
+        deduplicationScope = DeduplicationScope.BATCH;
+        duplicateFilterMaxBytes = DEFAULT_DUPLICATE_FILTER_MAX_BYTES;
+        duplicateFilterFalsePositiveRate = DEFAULT_DUPLICATE_FILTER_FALSE_POSITIVE_RATE;
+        flushPolicy = null;
+        preloadExistenceIndex = false;
+        existenceIndexMaxSize = DEFAULT_EXISTENCE_INDEX_MAX_SIZE;
+        generatedKeyConsumer = null;
+        idBlockSize = 0;
+        fetchSize = DEFAULT_FETCH_SIZE;
+    }
+
+    /**
+     * Resets the state of a previous use of this batch handler, so that the
+     * handler can be initialized again after it was closed. Retains the add
+     * object buffer and the statement builder, but not its templates, which
+     * depend on the settings.
+     */
+    private void resetState()
+    {
+        if ( statementBuilder instanceof AbstractStatementBuilder )
+        {
+            ((AbstractStatementBuilder<T>) statementBuilder).resetTemplates();
+        }
+
+        closed = false;
+        insertedObjectCount = 0;
+        lastFlushInsertedObjectCount = 0;
+        insertStatement = null;
+        insertStatementSink = null;
+        duplicateFilter = null;
+        uniqueObjects.clear();
+        updateObjects.clear();
+        deleteObjects.clear();
+
+        if ( addObjectSqlBuffer != null )
+        {
+            addObjectSqlBuffer.setLength( 0 );
+        }
+    }
+
+    /**
+     * Checks whether the given object exists for the current batch handler.
+     * Objects are compared by a 128-bit fingerprint of their unique values,
+     * which makes the chance of distinct objects being reported as duplicates
+     * negligible, also for batches of millions of objects. For the handler
+     * deduplication scope, objects which the duplicate filter reports as
+     * possibly flushed earlier are checked against the database.
+     *
+     * @param object the object.
+     * @return true if object exists, false if not.
+     */
+    private boolean objectExistsInternal( T object )
+    {
+        uniqueKeyHasher.reset();
+
+        try
+        {
+            writeUniqueValues( object, uniqueKeyHasher );
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( "Failed to write unique values", ex );
+        }
+
+        if ( uniqueKeyHasher.getCount() == 0 )
+        {
+            return false;
+        }
+
+        final long high = uniqueKeyHasher.getHigh();
+        final long low = uniqueKeyHasher.getLow();
+
+        if ( !uniqueObjects.add( high, low ) )
+        {
+            return true;
+        }
+
+        if ( duplicateFilter != null )
+        {
+            if ( duplicateFilter.mightContain( high, low ) && objectExists( object ) )
             {
-                statement.close();
+                return true;
             }
-            catch ( SQLException ex )
+
+            duplicateFilter.put( high, low );
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the given objects which exist, or do not exist, in the database.
+     * Objects are checked in chunks through bulk uniqueness statements, and
+     * the returned rows are matched to the objects by fingerprints of their
+     * unique values.
+     *
+     * @param objects the objects to check.
+     * @param existing whether to return the existing or the non-existing
+     *        objects.
+     * @return a list of objects.
+     */
+    private List<T> findByExistence( Collection<T> objects, boolean existing )
+    {
+        final List<T> result = new ArrayList<>();
+
+        if ( getUniqueColumns() == null || getUniqueColumns().isEmpty() )
+        {
+            if ( !existing )
             {
-                ex.printStackTrace();
+                result.addAll( objects );
             }
+
+            return result;
         }
 
-        if ( connection != null )
+        final List<T> list = new ArrayList<>( objects );
+        final int chunkSize = statementBuilder.getMaxBulkSize();
+
+        for ( int from = 0; from < list.size(); from += chunkSize )
         {
+            final List<T> chunk = list.subList( from, Math.min( from + chunkSize, list.size() ) );
+
+            final String sql = statementBuilder.getBulkUniquenessStatement( chunk );
+
+            log.debug( "Bulk unique SQL: " + sql );
+
             try
             {
-                connection.close();
+                awaitPendingStatements();
+
+                final ExistenceIndex<T> found = new ExistenceIndex<>( this, chunk.size(), Integer.MAX_VALUE );
+
+                try ( ResultSet resultSet = statement.executeQuery( sql ) )
+                {
+                    while ( resultSet.next() )
+                    {
+                        found.addRow( resultSet );
+                    }
+                }
+
+                for ( T object : chunk )
+                {
+                    if ( found.contains( object ) == existing )
+                    {
+                        result.add( object );
+                    }
+                }
             }
             catch ( SQLException ex )
             {
-                ex.printStackTrace();
+                log.info( "Bulk unique SQL: " + sql );
+
+                close();
+
+                throw new RuntimeException( "Failed to check uniqueness of objects", ex );
             }
         }
-        closed = true;
+
+        return result;
     }
 
     /**
-     * Checks whether the given object exists for the current batch handler.
+     * Loads the unique values of all rows in the table into the existence
+     * index through a streamed select. The select runs outside auto-commit
+     * mode and with the stream fetch size, so that rows are fetched in
+     * batches instead of all at once. Discards the index if the table holds
+     * more rows than the maximum size of the index.
+     */
+    private void loadExistenceIndex()
+        throws SQLException
+    {
+        final String sql = statementBuilder.getUniqueValuesStatement();
+
+        log.debug( "Existence index SQL: " + sql );
+
+        final ExistenceIndex<T> index = new ExistenceIndex<>( this, 1024, existenceIndexMaxSize );
+
+        try ( Stream<Boolean> rows = ResultSetStream.stream( connection, sql, getStreamFetchSize(), index::addRow, () -> {} ) )
+        {
+            if ( !rows.allMatch( Boolean::booleanValue ) )
+            {
+                log.info( "Table exceeds maximum existence index size: " + existenceIndexMaxSize );
+
+                existenceIndex = null;
+
+                return;
+            }
+        }
+
+        existenceIndex = index;
+
+        log.debug( "Existence index rows: " + existenceIndex.size() );
+    }
+
+    /**
+     * Adds the given object to the existence index, if present. Discards the
+     * index if it is full.
      *
      * @param object the object.
-     * @return true if object exists, false if not.
      */
-    private boolean objectExistsInternal( T object )
+    private void addToExistenceIndex( T object )
+        throws SQLException
     {
-        List<Object> uniqueList = getUniqueValues( object );
+        if ( existenceIndex != null && !existenceIndex.add( object ) )
+        {
+            log.info( "Maximum existence index size reached: " + existenceIndexMaxSize );
 
-        boolean exists = false;
+            existenceIndex = null;
+        }
+    }
 
-        if ( uniqueList != null && !uniqueList.isEmpty() )
+    /**
+     * Discards the existence index after rows were deleted, or updated where
+     * updates can change unique values, as the index cannot remove entries.
+     */
+    private void invalidateExistenceIndex( boolean update )
+    {
+        if ( existenceIndex != null && ( !update || !getIdentifierColumns().containsAll( getUniqueColumns() ) ) )
         {
-            List<String> ul  = Collections.singletonList( uniqueList.toString() );
-            String uniqueKey = String.join( ",", ul );
+            log.debug( "Existence index discarded" );
 
-            exists = !uniqueObjects.add( uniqueKey );
+            existenceIndex = null;
         }
-
-        return exists;
     }
 
     /**
@@ -422,6 +1621,270 @@ public abstract class AbstractBatchHandler<T>
         return addObjectSqlBuffer.toString();
     }
 
+    // -------------------------------------------------------------------------
+    // Getters and setters
+    // -------------------------------------------------------------------------
+
+    public InsertMode getInsertMode()
+    {
+        return insertMode;
+    }
+
+    /**
+     * Sets the strategy for inserting added objects. Must be set before
+     * {@link #init()} is invoked. Defaults to {@link InsertMode#MULTI_ROW}.
+     *
+     * @param insertMode the insert mode.
+     */
+    public void setInsertMode( InsertMode insertMode )
+    {
+        this.insertMode = insertMode;
+    }
+
+    public CopyFormat getCopyFormat()
+    {
+        return copyFormat;
+    }
+
+    /**
+     * Sets the data format used by the {@link InsertMode#COPY} insert mode.
+     * Defaults to {@link CopyFormat#TEXT}.
+     *
+     * @param copyFormat the copy format.
+     */
+    public void setCopyFormat( CopyFormat copyFormat )
+    {
+        this.copyFormat = copyFormat;
+    }
+
+    public ConflictMode getConflictMode()
+    {
+        return conflictMode;
+    }
+
+    /**
+     * Sets how conflicts between inserted objects and existing rows with the
+     * same unique values are resolved. Must be set before {@link #init()} is
+     * invoked. Defaults to {@link ConflictMode#FAIL}. With
+     * {@link ConflictMode#UPDATE}, objects added with the same unique values
+     * as an object added earlier are written in a separate statement instead
+     * of being skipped, so that the last added values take effect. Not
+     * supported for the {@link InsertMode#COPY} insert mode.
+     *
+     * @param conflictMode the conflict mode.
+     */
+    public void setConflictMode( ConflictMode conflictMode )
+    {
+        this.conflictMode = conflictMode;
+    }
+
+    public boolean isAsyncFlush()
+    {
+        return asyncFlush;
+    }
+
+    /**
+     * Sets whether full insert statements are executed on a background writer
+     * thread while objects are added to the next statement. Applies to the
+     * {@link InsertMode#MULTI_ROW} insert mode. Other operations and flush
+     * wait for pending statements to complete, and rethrow the first failure
+     * of a pending statement. Must be set before {@link #init()} is invoked.
+     *
+     * @param asyncFlush whether to execute insert statements asynchronously.
+     */
+    public void setAsyncFlush( boolean asyncFlush )
+    {
+        this.asyncFlush = asyncFlush;
+    }
+
+    public BiConsumer<T, Long> getGeneratedKeyConsumer()
+    {
+        return generatedKeyConsumer;
+    }
+
+    /**
+     * Sets a consumer which receives each added or inserted object along with
+     * the key generated for its auto-increment column, when the statement
+     * holding the object is executed. Keys are retrieved through the JDBC
+     * generated keys of each statement, which is {@code RETURNING} for
+     * PostgreSQL, so that no lookup is required to learn the identifiers of
+     * new rows. Requires an auto-increment column and the
+     * {@link ConflictMode#FAIL} conflict mode, is not supported for the
+     * {@link InsertMode#COPY} insert mode, and makes insert statements execute
+     * synchronously. Must be set before {@link #init()} is invoked.
+     *
+     * @param generatedKeyConsumer the consumer of objects and generated keys,
+     *        e.g. a setter of the identifier property.
+     */
+    public void setGeneratedKeyConsumer( BiConsumer<T, Long> generatedKeyConsumer )
+    {
+        this.generatedKeyConsumer = generatedKeyConsumer;
+    }
+
+    public int getIdBlockSize()
+    {
+        return idBlockSize;
+    }
+
+    /**
+     * Sets the number of sequence values to reserve at a time for the
+     * auto-increment column, for dialects which generate ids from a sequence.
+     * When greater than 0, ids are allocated from reserved blocks and written
+     * as literal values instead of a sequence call per row, and are passed to
+     * the generated key consumer as objects are added. Blocks are shared by
+     * all handlers using the same sequence through the same data source, see
+     * {@link SequenceBlockAllocator}. Defaults to 0, which generates ids in the database. Must be set before
+     * {@link #init()} is invoked.
+     *
+     * @param idBlockSize the number of sequence values to reserve at a time.
+     */
+    public void setIdBlockSize( int idBlockSize )
+    {
+        this.idBlockSize = idBlockSize;
+    }
+
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows fetched from the database at a time by streams
+     * returned from {@link #stream(String)} and {@link #scan()}. Defaults to
+     * 1000. Ignored for MySQL, where rows are streamed one at a time.
+     *
+     * @param fetchSize the fetch size.
+     */
+    public void setFetchSize( int fetchSize )
+    {
+        this.fetchSize = fetchSize;
+    }
+
+    public FlushPolicy getFlushPolicy()
+    {
+        return flushPolicy;
+    }
+
+    /**
+     * Sets the policy which decides when added objects are flushed to the
+     * database. Applies to the multi-row and prepared batch insert modes. Must
+     * be set before {@link #init()} is invoked. Defaults to a
+     * {@link DefaultFlushPolicy} which flushes multi-row statements at 200000
+     * characters and prepared batches at 1000 rows.
+     *
+     * @param flushPolicy the flush policy.
+     */
+    public void setFlushPolicy( FlushPolicy flushPolicy )
+    {
+        this.flushPolicy = flushPolicy;
+    }
+
+    public int getMaxPendingFlushes()
+    {
+        return maxPendingFlushes;
+    }
+
+    /**
+     * Sets the maximum number of insert statements which can be pending
+     * execution in asynchronous flush mode before adding objects blocks.
+     * Defaults to 2.
+     *
+     * @param maxPendingFlushes the maximum number of pending statements.
+     */
+    public void setMaxPendingFlushes( int maxPendingFlushes )
+    {
+        this.maxPendingFlushes = maxPendingFlushes;
+    }
+
+    public DeduplicationScope getDeduplicationScope()
+    {
+        return deduplicationScope;
+    }
+
+    /**
+     * Sets the scope within which duplicate objects are detected and skipped
+     * by {@link #addObject(Object)}. Must be set before {@link #init()} is
+     * invoked. Defaults to {@link DeduplicationScope#BATCH}. Has no effect for
+     * the {@link InsertMode#COPY} insert mode, which detects duplicates
+     * across all added objects.
+     *
+     * @param deduplicationScope the deduplication scope.
+     */
+    public void setDeduplicationScope( DeduplicationScope deduplicationScope )
+    {
+        this.deduplicationScope = deduplicationScope;
+    }
+
+    public int getDuplicateFilterMaxBytes()
+    {
+        return duplicateFilterMaxBytes;
+    }
+
+    /**
+     * Sets the memory size in bytes of the filter used for the
+     * {@link DeduplicationScope#HANDLER} deduplication scope. Defaults to 4 MB,
+     * which holds about 3.5 million objects at a false positive rate of 1%.
+     *
+     * @param duplicateFilterMaxBytes the memory size of the filter in bytes.
+     */
+    public void setDuplicateFilterMaxBytes( int duplicateFilterMaxBytes )
+    {
+        this.duplicateFilterMaxBytes = duplicateFilterMaxBytes;
+    }
+
+    public double getDuplicateFilterFalsePositiveRate()
+    {
+        return duplicateFilterFalsePositiveRate;
+    }
+
+    /**
+     * Sets the target false positive rate of the filter used for the
+     * {@link DeduplicationScope#HANDLER} deduplication scope, which is the
+     * share of new objects checked against the database. Defaults to 0.01.
+     *
+     * @param duplicateFilterFalsePositiveRate the false positive rate.
+     */
+    public void setDuplicateFilterFalsePositiveRate( double duplicateFilterFalsePositiveRate )
+    {
+        this.duplicateFilterFalsePositiveRate = duplicateFilterFalsePositiveRate;
+    }
+
+    public boolean isPreloadExistenceIndex()
+    {
+        return preloadExistenceIndex;
+    }
+
+    /**
+     * Sets whether to load the unique values of all rows in the table into an
+     * in-memory index on init, which answers {@link #objectExists(Object)}
+     * without querying the database. The index includes objects added through
+     * this batch handler, and is discarded when objects are deleted or
+     * updated in a way which can change unique values, or when the table
+     * holds more rows than the maximum index size. Defaults to false.
+     *
+     * @param preloadExistenceIndex whether to preload the existence index.
+     */
+    public void setPreloadExistenceIndex( boolean preloadExistenceIndex )
+    {
+        this.preloadExistenceIndex = preloadExistenceIndex;
+    }
+
+    public int getExistenceIndexMaxSize()
+    {
+        return existenceIndexMaxSize;
+    }
+
+    /**
+     * Sets the maximum number of rows held by the existence index, at about
+     * 32 bytes per row and unique column. Defaults to 2 million.
+     *
+     * @param existenceIndexMaxSize the maximum number of rows.
+     */
+    public void setExistenceIndexMaxSize( int existenceIndexMaxSize )
+    {
+        this.existenceIndexMaxSize = existenceIndexMaxSize;
+    }
+
     // -------------------------------------------------------------------------
     // Abstract get methods
     // -------------------------------------------------------------------------
@@ -498,7 +1961,10 @@ public abstract class AbstractBatchHandler<T>
     public abstract List<Object> getValues( T object );
 
     /**
-     * Maps a ResultSet row to an object T.
+     * Maps a ResultSet row to an object T. Batch handlers which implement
+     * {@link IndexedRowMapper} have rows mapped through
+     * {@link IndexedRowMapper#mapRow(ResultSet, int[])} instead, with column
+     * indexes resolved once per result set.
      *
      * @param resultSet the result set.
      * @return an object T.
@@ -507,6 +1973,87 @@ public abstract class AbstractBatchHandler<T>
     public abstract T mapRow( ResultSet resultSet )
         throws SQLException;
 
+    /**
+     * Writes the values matching the columns for the given object to the
+     * given sink, in column order. The default implementation writes the
+     * values of {@link #getValues(Object)}. Batch handlers can override this
+     * method to write values directly, which avoids creating a list and
+     * boxing primitive values for each added object.
+     *
+     * @param object the object.
+     * @param sink the value sink.
+     * @throws SQLException if writing a value failed.
+     */
+    public void writeValues( T object, ValueSink sink )
+        throws SQLException
+    {
+        for ( Object value : getValues( object ) )
+        {
+            sink.putObject( value );
+        }
+    }
+
+    /**
+     * Writes the values of insert statements for the given object to the given
+     * sink, which are the values of {@link #writeValues(Object, ValueSink)}
+     * preceded by the allocated id if ids are allocated from sequence blocks.
+     *
+     * @param object the object.
+     * @param sink the value sink.
+     * @throws SQLException if writing a value failed.
+     */
+    public final void writeInsertValues( T object, ValueSink sink )
+        throws SQLException
+    {
+        if ( idAllocator != null )
+        {
+            sink.putLong( allocatedId );
+        }
+
+        writeValues( object, sink );
+    }
+
+    /**
+     * Writes the values matching the unique columns for the given object to
+     * the given sink, in column order. The default implementation writes the
+     * values of {@link #getUniqueValues(Object)}.
+     *
+     * @param object the object.
+     * @param sink the value sink.
+     * @throws SQLException if writing a value failed.
+     */
+    public void writeUniqueValues( T object, ValueSink sink )
+        throws SQLException
+    {
+        List<Object> values = getUniqueValues( object );
+
+        if ( values != null )
+        {
+            for ( Object value : values )
+            {
+                sink.putObject( value );
+            }
+        }
+    }
+
+    /**
+     * Writes the values matching the identifier columns for the given object
+     * to the given sink, in column order. The default implementation writes
+     * the values of {@link #getIdentifierValues(Object)}.
+     *
+     * @param object the object.
+     * @param sink the value sink.
+     * @throws SQLException if writing a value failed.
+     */
+    public void writeIdentifierValues( T object, ValueSink sink )
+        throws SQLException
+    {
+        for ( Object value : getIdentifierValues( object ) )
+        {
+            sink.putObject( value );
+        }
+    }
+
     /**
      * Returns the sequence name to be used for generating next value for ids.
      *
@@ -0,0 +1,401 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.ValueSink;
+import org.hisp.quick.annotation.Column;
+import org.hisp.quick.annotation.Table;
+import org.hisp.quick.mapper.ColumnIndex;
+import org.hisp.quick.mapper.IndexedRowMapper;
+
+/**
+ * Batch handler for entity classes annotated with {@link Table}, whose table,
+ * columns, unique columns and identifier columns are read from the
+ * {@link Table} and {@link Column} annotations. The metadata of an entity
+ * class is computed once and shared by all handlers of the class, and the
+ * getters, setters and no-argument constructor of the class are bound to
+ * functional interfaces through {@link java.lang.invoke.LambdaMetafactory},
+ * so that values are written and rows are mapped without reflection.
+ * Example usage:
+ *
+ * <pre>
+ * BatchHandler&lt;Category&gt; batchHandler = new AnnotatedBatchHandler&lt;&gt;( jdbcConfiguration, Category.class ).init();
+ * </pre>
+ */
+public class AnnotatedBatchHandler<T>
+    extends AbstractBatchHandler<T>
+    implements IndexedRowMapper<T>
+{
+    private static final Map<Class<?>, Metadata<?>> METADATA_CACHE = new ConcurrentHashMap<>();
+
+    private final Metadata<T> metadata;
+
+    public AnnotatedBatchHandler( JdbcConfiguration configuration, Class<T> entityClass )
+    {
+        super( configuration );
+
+        this.metadata = getMetadata( entityClass );
+    }
+
+    // -------------------------------------------------------------------------
+    // AbstractBatchHandler implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public String getTableName()
+    {
+        return metadata.tableName;
+    }
+
+    @Override
+    public String getAutoIncrementColumn()
+    {
+        return metadata.autoIncrementColumn;
+    }
+
+    @Override
+    public String getIdSequenceName()
+    {
+        return metadata.idSequence != null ? metadata.idSequence : super.getIdSequenceName();
+    }
+
+    @Override
+    public boolean isInclusiveUniqueColumns()
+    {
+        return metadata.inclusiveUniqueColumns;
+    }
+
+    @Override
+    public List<String> getIdentifierColumns()
+    {
+        return metadata.identifierColumns;
+    }
+
+    @Override
+    public List<Object> getIdentifierValues( T object )
+    {
+        return getValues( object, metadata.identifierAccessors );
+    }
+
+    @Override
+    public List<String> getUniqueColumns()
+    {
+        return metadata.uniqueColumns;
+    }
+
+    @Override
+    public List<Object> getUniqueValues( T object )
+    {
+        return getValues( object, metadata.uniqueAccessors );
+    }
+
+    @Override
+    public List<String> getColumns()
+    {
+        return metadata.columns;
+    }
+
+    @Override
+    public List<Object> getValues( T object )
+    {
+        return getValues( object, metadata.valueAccessors );
+    }
+
+    @Override
+    public void writeValues( T object, ValueSink sink )
+        throws SQLException
+    {
+        write( object, metadata.valueAccessors, sink );
+    }
+
+    @Override
+    public void writeUniqueValues( T object, ValueSink sink )
+        throws SQLException
+    {
+        write( object, metadata.uniqueAccessors, sink );
+    }
+
+    @Override
+    public void writeIdentifierValues( T object, ValueSink sink )
+        throws SQLException
+    {
+        write( object, metadata.identifierAccessors, sink );
+    }
+
+    // -------------------------------------------------------------------------
+    // IndexedRowMapper implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public String[] getColumnLabels()
+    {
+        return metadata.mappedColumns;
+    }
+
+    @Override
+    public T mapRow( ResultSet resultSet )
+        throws SQLException
+    {
+        return mapRow( resultSet, ColumnIndex.of( resultSet.getMetaData() ).indexesOf( metadata.mappedColumns ) );
+    }
+
+    @Override
+    public T mapRow( ResultSet resultSet, int[] columns )
+        throws SQLException
+    {
+        final T object = metadata.constructor.get();
+
+        for ( int i = 0; i < columns.length; i++ )
+        {
+            metadata.mappedAccessors[i].read( resultSet, columns[i], object );
+        }
+
+        return object;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<Object> getValues( T object, PropertyAccessor<T>[] accessors )
+    {
+        final List<Object> values = new ArrayList<>( accessors.length );
+
+        for ( PropertyAccessor<T> accessor : accessors )
+        {
+            values.add( accessor.get( object ) );
+        }
+
+        return values;
+    }
+
+    private void write( T object, PropertyAccessor<T>[] accessors, ValueSink sink )
+        throws SQLException
+    {
+        for ( PropertyAccessor<T> accessor : accessors )
+        {
+            accessor.write( object, sink );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <T> Metadata<T> getMetadata( Class<T> entityClass )
+    {
+        return (Metadata<T>) METADATA_CACHE.computeIfAbsent( entityClass, k -> new Metadata<>( entityClass ) );
+    }
+
+    /**
+     * Metadata and bound accessors of an annotated entity class.
+     */
+    private static final class Metadata<T>
+    {
+        private final String tableName;
+
+        private final String autoIncrementColumn;
+
+        private final String idSequence;
+
+        private final boolean inclusiveUniqueColumns;
+
+        private final List<String> columns;
+
+        private final List<String> uniqueColumns;
+
+        private final List<String> identifierColumns;
+
+        private final String[] mappedColumns;
+
+        private final PropertyAccessor<T>[] valueAccessors;
+
+        private final PropertyAccessor<T>[] uniqueAccessors;
+
+        private final PropertyAccessor<T>[] identifierAccessors;
+
+        private final PropertyAccessor<T>[] mappedAccessors;
+
+        private final Supplier<T> constructor;
+
+        private Metadata( Class<T> entityClass )
+        {
+            final Table table = entityClass.getAnnotation( Table.class );
+
+            if ( table == null )
+            {
+                throw new IllegalArgumentException( "Class is not annotated with @Table: " + entityClass.getName() );
+            }
+
+            this.tableName = table.name();
+            this.idSequence = table.idSequence().isEmpty() ? null : table.idSequence();
+            this.inclusiveUniqueColumns = table.inclusiveUniqueColumns();
+
+            final List<String> columns = new ArrayList<>();
+            final List<String> uniqueColumns = new ArrayList<>();
+            final List<String> identifierColumns = new ArrayList<>();
+            final List<String> mappedColumns = new ArrayList<>();
+            final List<PropertyAccessor<T>> valueAccessors = new ArrayList<>();
+            final List<PropertyAccessor<T>> uniqueAccessors = new ArrayList<>();
+            final List<PropertyAccessor<T>> identifierAccessors = new ArrayList<>();
+            final List<PropertyAccessor<T>> mappedAccessors = new ArrayList<>();
+            String autoIncrementColumn = null;
+
+            try
+            {
+                final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn( entityClass, MethodHandles.lookup() );
+
+                for ( Field field : getFields( entityClass ) )
+                {
+                    final Column column = field.getAnnotation( Column.class );
+                    final String name = column.name().isEmpty() ? field.getName() : column.name();
+                    final PropertyAccessor<T> accessor = new PropertyAccessor<>( lookup, entityClass,
+                        getGetter( entityClass, field ), getSetter( entityClass, field ) );
+
+                    if ( column.autoIncrement() )
+                    {
+                        autoIncrementColumn = name;
+                    }
+                    else
+                    {
+                        columns.add( name );
+                        valueAccessors.add( accessor );
+                    }
+
+                    if ( column.unique() )
+                    {
+                        uniqueColumns.add( name );
+                        uniqueAccessors.add( accessor );
+                    }
+
+                    if ( column.identifier() )
+                    {
+                        identifierColumns.add( name );
+                        identifierAccessors.add( accessor );
+                    }
+
+                    mappedColumns.add( name );
+                    mappedAccessors.add( accessor );
+                }
+
+                this.constructor = PropertyAccessor.bind( lookup, Supplier.class, "get",
+                    lookup.findConstructor( entityClass, MethodType.methodType( void.class ) ),
+                    MethodType.methodType( entityClass ) );
+            }
+            catch ( ReflectiveOperationException ex )
+            {
+                throw new IllegalArgumentException( "Failed to bind accessors of class: " + entityClass.getName(), ex );
+            }
+
+            this.autoIncrementColumn = autoIncrementColumn;
+            this.columns = Collections.unmodifiableList( columns );
+            this.uniqueColumns = Collections.unmodifiableList( uniqueColumns );
+            this.identifierColumns = Collections.unmodifiableList( identifierColumns );
+            this.mappedColumns = mappedColumns.toArray( new String[0] );
+            this.valueAccessors = toArray( valueAccessors );
+            this.uniqueAccessors = toArray( uniqueAccessors );
+            this.identifierAccessors = toArray( identifierAccessors );
+            this.mappedAccessors = toArray( mappedAccessors );
+        }
+
+        /**
+         * Returns the fields annotated with {@link Column} of the given class
+         * and its superclasses, superclass fields first.
+         */
+        private static List<Field> getFields( Class<?> entityClass )
+        {
+            final List<Field> fields = new ArrayList<>();
+
+            for ( Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass() )
+            {
+                final List<Field> declared = new ArrayList<>();
+
+                for ( Field field : type.getDeclaredFields() )
+                {
+                    if ( field.isAnnotationPresent( Column.class ) )
+                    {
+                        declared.add( field );
+                    }
+                }
+
+                fields.addAll( 0, declared );
+            }
+
+            return fields;
+        }
+
+        private static Method getGetter( Class<?> entityClass, Field field )
+            throws NoSuchMethodException
+        {
+            final String property = capitalize( field.getName() );
+
+            try
+            {
+                return entityClass.getMethod( "get" + property );
+            }
+            catch ( NoSuchMethodException ex )
+            {
+                if ( field.getType() == boolean.class || field.getType() == Boolean.class )
+                {
+                    return entityClass.getMethod( "is" + property );
+                }
+
+                throw ex;
+            }
+        }
+
+        private static Method getSetter( Class<?> entityClass, Field field )
+            throws NoSuchMethodException
+        {
+            return entityClass.getMethod( "set" + capitalize( field.getName() ), field.getType() );
+        }
+
+        private static String capitalize( String name )
+        {
+            return Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private static <T> PropertyAccessor<T>[] toArray( List<PropertyAccessor<T>> accessors )
+        {
+            return (PropertyAccessor<T>[]) accessors.toArray( new PropertyAccessor<?>[0] );
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.quick.FlushPolicy;
+
+/**
+ * Class which executes SQL statements held in buffers on a background writer
+ * thread, so that the producer can encode the next statement into another
+ * buffer while the previous one is executing. The number of statements which
+ * are submitted but not yet executed is bounded, and the producer blocks when
+ * the bound is reached. Executed buffers are cleared and recycled, and the
+ * flush policy is notified of each execution from the writer thread.
+ *
+ * The first failure is retained and rethrown to the producer on the next
+ * submit or await, after which remaining statements are skipped.
+ */
+public class AsyncStatementExecutor
+{
+    private static final Log log = LogFactory.getLog( AsyncStatementExecutor.class );
+
+    private final Statement statement;
+
+    private final FlushPolicy flushPolicy;
+
+    private final int maxPending;
+
+    private final int bufferCapacity;
+
+    private final Semaphore permits;
+
+    private final Queue<StringBuilder> freeBuffers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    private final AtomicLong updateCount = new AtomicLong();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "quick-batch-writer" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    /**
+     * @param statement the statement to execute buffers with.
+     * @param flushPolicy the flush policy to notify of executed statements.
+     * @param maxPending the maximum number of submitted buffers which are not
+     *        yet executed.
+     * @param bufferCapacity the initial capacity of new buffers.
+     */
+    public AsyncStatementExecutor( Statement statement, FlushPolicy flushPolicy, int maxPending, int bufferCapacity )
+    {
+        this.statement = statement;
+        this.flushPolicy = flushPolicy;
+        this.maxPending = maxPending;
+        this.bufferCapacity = bufferCapacity;
+        this.permits = new Semaphore( maxPending );
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns an empty buffer, recycled from an executed statement if
+     * available.
+     *
+     * @return an empty buffer.
+     */
+    public StringBuilder getBuffer()
+    {
+        StringBuilder buffer = freeBuffers.poll();
+
+        return buffer != null ? buffer : new StringBuilder( bufferCapacity );
+    }
+
+    /**
+     * Submits the SQL statement in the given buffer for execution. Blocks
+     * while the maximum number of statements are pending. The buffer must not
+     * be modified by the caller after submission.
+     *
+     * @param sql the buffer holding the SQL statement.
+     * @param rowCount the number of rows inserted by the statement.
+     * @throws SQLException if a previously submitted statement failed.
+     */
+    public void submit( StringBuilder sql, int rowCount )
+        throws SQLException
+    {
+        checkFailure();
+
+        try
+        {
+            permits.acquire();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new SQLException( "Interrupted while waiting for pending statements", ex );
+        }
+
+        executor.execute( () -> execute( sql, rowCount ) );
+    }
+
+    /**
+     * Waits until all submitted statements are executed.
+     *
+     * @throws SQLException if a submitted statement failed.
+     */
+    public void await()
+        throws SQLException
+    {
+        try
+        {
+            permits.acquire( maxPending );
+            permits.release( maxPending );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new SQLException( "Interrupted while waiting for pending statements", ex );
+        }
+
+        checkFailure();
+    }
+
+    /**
+     * Skips statements which are not yet started and stops the writer thread,
+     * waiting for a statement currently executing to complete.
+     */
+    public void shutdown()
+    {
+        failure.compareAndSet( null, new SQLException( "Statement executor was shut down" ) );
+
+        executor.shutdown();
+
+        try
+        {
+            executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the sum of the update counts of the executed statements.
+     *
+     * @return the total update count.
+     */
+    public long getUpdateCount()
+    {
+        return updateCount.get();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void execute( StringBuilder sql, int rowCount )
+    {
+        try
+        {
+            if ( failure.get() == null )
+            {
+                long start = System.nanoTime();
+
+                updateCount.addAndGet( statement.executeUpdate( sql.toString() ) );
+
+                flushPolicy.onFlush( rowCount, sql.length(), System.nanoTime() - start );
+
+                log.debug( "Async SQL: " + sql );
+            }
+        }
+        catch ( Exception ex )
+        {
+            log.info( "Async SQL: " + sql );
+
+            failure.compareAndSet( null, ex );
+        }
+        finally
+        {
+            sql.setLength( 0 );
+
+            freeBuffers.offer( sql );
+
+            permits.release();
+        }
+    }
+
+    private void checkFailure()
+        throws SQLException
+    {
+        Exception ex = failure.get();
+
+        if ( ex instanceof SQLException )
+        {
+            throw (SQLException) ex;
+        }
+        else if ( ex != null )
+        {
+            throw new SQLException( ex );
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Bloom filter over 128-bit fingerprints with a fixed memory size. The number
+ * of hash functions is derived from the target false positive rate, and the
+ * hash functions are derived from the two halves of the fingerprint through
+ * double hashing. The false positive rate stays at or below the target as
+ * long as the number of fingerprints added does not exceed the capacity, and
+ * degrades gradually beyond it.
+ */
+public class BloomFilter
+{
+    private static final double LN2 = Math.log( 2 );
+
+    private final long[] words;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    private final long capacity;
+
+    private long size = 0;
+
+    /**
+     * @param maxBytes the memory size of the filter in bytes.
+     * @param falsePositiveRate the target false positive rate, between 0 and 1.
+     */
+    public BloomFilter( int maxBytes, double falsePositiveRate )
+    {
+        if ( maxBytes < 8 || falsePositiveRate <= 0d || falsePositiveRate >= 1d )
+        {
+            throw new IllegalArgumentException( "Invalid Bloom filter size or false positive rate: " +
+                maxBytes + ", " + falsePositiveRate );
+        }
+
+        this.words = new long[maxBytes / 8];
+        this.bitCount = words.length * 64L;
+        this.hashCount = Math.max( 1, (int) Math.round( -Math.log( falsePositiveRate ) / LN2 ) );
+        this.capacity = (long) ( bitCount * LN2 * LN2 / -Math.log( falsePositiveRate ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the given fingerprint to the filter.
+     *
+     * @param high the high 64 bits of the fingerprint.
+     * @param low the low 64 bits of the fingerprint.
+     */
+    public void put( long high, long low )
+    {
+        long hash = high;
+
+        for ( int i = 0; i < hashCount; i++ )
+        {
+            long bit = ( hash & Long.MAX_VALUE ) % bitCount;
+
+            words[(int) ( bit >>> 6 )] |= 1L << bit;
+
+            hash += low;
+        }
+
+        size++;
+    }
+
+    /**
+     * Indicates whether the given fingerprint might have been added to the
+     * filter. False means that the fingerprint was definitely not added.
+     *
+     * @param high the high 64 bits of the fingerprint.
+     * @param low the low 64 bits of the fingerprint.
+     * @return true if the fingerprint might have been added.
+     */
+    public boolean mightContain( long high, long low )
+    {
+        long hash = high;
+
+        for ( int i = 0; i < hashCount; i++ )
+        {
+            long bit = ( hash & Long.MAX_VALUE ) % bitCount;
+
+            if ( ( words[(int) ( bit >>> 6 )] & ( 1L << bit ) ) == 0 )
+            {
+                return false;
+            }
+
+            hash += low;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of fingerprints added to the filter.
+     *
+     * @return the number of fingerprints added.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of fingerprints the filter holds at the target
+     * false positive rate.
+     *
+     * @return the capacity.
+     */
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    public int getHashCount()
+    {
+        return hashCount;
+    }
+}
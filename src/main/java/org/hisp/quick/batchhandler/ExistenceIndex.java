@@ -0,0 +1,289 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * In-memory index of the unique values of rows, holding fingerprints of the
+ * unique values of each row. For inclusive unique columns, rows are indexed
+ * by the fingerprint of all unique values. For exclusive unique columns, the
+ * values of each unique column are indexed separately. Values of CHAR
+ * columns, which the database pads with trailing spaces, are compared without
+ * trailing spaces. The index holds a maximum number of rows, beyond which it
+ * refuses new rows.
+ */
+public class ExistenceIndex<T>
+{
+    private final AbstractBatchHandler<T> batchHandler;
+
+    private final int maxSize;
+
+    private final int columnCount;
+
+    private final boolean inclusive;
+
+    private final FingerprintSet[] fingerprints;
+
+    private final UniqueKeyHasher hasher = new UniqueKeyHasher();
+
+    private boolean columnTypesRead = false;
+
+    private boolean[] paddedColumns;
+
+    private int size = 0;
+
+    /**
+     * @param batchHandler the batch handler defining the unique columns.
+     * @param expectedSize the expected number of rows.
+     * @param maxSize the maximum number of rows.
+     */
+    public ExistenceIndex( AbstractBatchHandler<T> batchHandler, int expectedSize, int maxSize )
+    {
+        this.batchHandler = batchHandler;
+        this.maxSize = maxSize;
+        this.columnCount = batchHandler.getUniqueColumns().size();
+        this.inclusive = columnCount == 1 || batchHandler.isInclusiveUniqueColumns();
+        this.fingerprints = new FingerprintSet[inclusive ? 1 : columnCount];
+
+        for ( int i = 0; i < fingerprints.length; i++ )
+        {
+            fingerprints[i] = new FingerprintSet( expectedSize );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the unique values of the current row of the given result set, where
+     * the unique columns are the first columns in the result set.
+     *
+     * @param resultSet the result set.
+     * @return false if the index is full and the row was not added.
+     * @throws SQLException if reading the result set failed.
+     */
+    public boolean addRow( ResultSet resultSet )
+        throws SQLException
+    {
+        if ( size >= maxSize )
+        {
+            return false;
+        }
+
+        if ( !columnTypesRead )
+        {
+            readColumnTypes( resultSet.getMetaData() );
+        }
+
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            if ( !inclusive || i == 0 )
+            {
+                hasher.reset();
+            }
+
+            hasher.putObject( unpad( i, resultSet.getObject( i + 1 ) ) );
+
+            if ( !inclusive || i == columnCount - 1 )
+            {
+                fingerprints[inclusive ? 0 : i].add( hasher.getHigh(), hasher.getLow() );
+            }
+        }
+
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Adds the unique values of the given object.
+     *
+     * @param object the object.
+     * @return false if the index is full and the object was not added.
+     * @throws SQLException if writing the unique values failed.
+     */
+    public boolean add( T object )
+        throws SQLException
+    {
+        if ( size >= maxSize )
+        {
+            return false;
+        }
+
+        if ( inclusive )
+        {
+            putUniqueValues( object );
+
+            fingerprints[0].add( hasher.getHigh(), hasher.getLow() );
+        }
+        else
+        {
+            final List<Object> values = batchHandler.getUniqueValues( object );
+
+            for ( int i = 0; i < columnCount; i++ )
+            {
+                hasher.reset();
+                hasher.putObject( unpad( i, values.get( i ) ) );
+
+                fingerprints[i].add( hasher.getHigh(), hasher.getLow() );
+            }
+        }
+
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Indicates whether a row with the unique values of the given object is
+     * in the index. For exclusive unique columns, a row with any of the unique
+     * values of the object matches.
+     *
+     * @param object the object.
+     * @return true if a matching row is in the index.
+     * @throws SQLException if writing the unique values failed.
+     */
+    public boolean contains( T object )
+        throws SQLException
+    {
+        if ( inclusive )
+        {
+            putUniqueValues( object );
+
+            return fingerprints[0].contains( hasher.getHigh(), hasher.getLow() );
+        }
+
+        final List<Object> values = batchHandler.getUniqueValues( object );
+
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            hasher.reset();
+            hasher.putObject( unpad( i, values.get( i ) ) );
+
+            if ( fingerprints[i].contains( hasher.getHigh(), hasher.getLow() ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the number of rows in the index.
+     *
+     * @return the number of rows.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writes the unique values of the given object to the hasher after a
+     * reset, without trailing spaces for CHAR columns.
+     */
+    private void putUniqueValues( T object )
+        throws SQLException
+    {
+        hasher.reset();
+
+        if ( paddedColumns == null )
+        {
+            batchHandler.writeUniqueValues( object, hasher );
+
+            return;
+        }
+
+        final List<Object> values = batchHandler.getUniqueValues( object );
+
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            hasher.putObject( unpad( i, values.get( i ) ) );
+        }
+    }
+
+    /**
+     * Reads which of the unique columns are CHAR columns from the meta data
+     * of the first row added.
+     */
+    private void readColumnTypes( ResultSetMetaData metaData )
+        throws SQLException
+    {
+        columnTypesRead = true;
+
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            final int type = metaData.getColumnType( i + 1 );
+
+            if ( type == Types.CHAR || type == Types.NCHAR )
+            {
+                if ( paddedColumns == null )
+                {
+                    paddedColumns = new boolean[columnCount];
+                }
+
+                paddedColumns[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the given value of the unique column with the given index,
+     * without trailing spaces if the column is a CHAR column.
+     */
+    private Object unpad( int index, Object value )
+    {
+        if ( paddedColumns == null || !paddedColumns[index] || !(value instanceof String) )
+        {
+            return value;
+        }
+
+        final String string = (String) value;
+
+        int length = string.length();
+
+        while ( length > 0 && string.charAt( length - 1 ) == ' ' )
+        {
+            length--;
+        }
+
+        return string.substring( 0, length );
+    }
+}
@@ -0,0 +1,223 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of 128-bit fingerprints, stored as pairs of longs
+ * in a single array. Uses linear probing and keeps the load factor at or
+ * below one half. Requires 32 bytes per entry at most, without any per-entry
+ * objects.
+ */
+public class FingerprintSet
+{
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+
+    private int mask;
+
+    private int size = 0;
+
+    private boolean containsZero = false;
+
+    public FingerprintSet()
+    {
+        this( MIN_CAPACITY );
+    }
+
+    /**
+     * @param expectedSize the expected number of fingerprints.
+     */
+    public FingerprintSet( int expectedSize )
+    {
+        allocate( tableCapacity( expectedSize ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the given fingerprint to this set.
+     *
+     * @param high the high 64 bits of the fingerprint.
+     * @param low the low 64 bits of the fingerprint.
+     * @return true if the fingerprint was added, false if already present.
+     */
+    public boolean add( long high, long low )
+    {
+        if ( high == 0 && low == 0 )
+        {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+
+        int slot = indexOf( high, low );
+
+        if ( table[slot] != 0 || table[slot + 1] != 0 )
+        {
+            return false;
+        }
+
+        table[slot] = high;
+        table[slot + 1] = low;
+
+        if ( ++size > ( mask + 1 ) / 2 )
+        {
+            rehash( size );
+        }
+
+        return true;
+    }
+
+    /**
+     * Indicates whether the given fingerprint is present in this set.
+     *
+     * @param high the high 64 bits of the fingerprint.
+     * @param low the low 64 bits of the fingerprint.
+     * @return true if the fingerprint is present.
+     */
+    public boolean contains( long high, long low )
+    {
+        if ( high == 0 && low == 0 )
+        {
+            return containsZero;
+        }
+
+        int slot = indexOf( high, low );
+
+        return table[slot] != 0 || table[slot + 1] != 0;
+    }
+
+    /**
+     * Returns the number of fingerprints in this set.
+     *
+     * @return the number of fingerprints.
+     */
+    public int size()
+    {
+        return size + ( containsZero ? 1 : 0 );
+    }
+
+    /**
+     * Removes all fingerprints from this set. Retains the table as long as
+     * it is not excessively large, so that it can be reused for the next
+     * batch without growing again.
+     */
+    public void clear()
+    {
+        if ( size == 0 && !containsZero )
+        {
+            return;
+        }
+
+        if ( mask + 1 > MIN_CAPACITY * 2 && size < ( mask + 1 ) / 16 )
+        {
+            allocate( tableCapacity( size ) );
+        }
+        else
+        {
+            Arrays.fill( table, 0L );
+        }
+
+        size = 0;
+        containsZero = false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the array index of the slot holding the given fingerprint, or
+     * of the empty slot where it would be inserted.
+     */
+    private int indexOf( long high, long low )
+    {
+        int index = (int) ( low ^ ( low >>> 32 ) ) & mask;
+
+        while ( true )
+        {
+            int slot = index * 2;
+
+            long h = table[slot];
+            long l = table[slot + 1];
+
+            if ( ( h == 0 && l == 0 ) || ( h == high && l == low ) )
+            {
+                return slot;
+            }
+
+            index = ( index + 1 ) & mask;
+        }
+    }
+
+    private void rehash( int entries )
+    {
+        long[] old = table;
+
+        allocate( tableCapacity( entries ) );
+
+        for ( int i = 0; i < old.length; i += 2 )
+        {
+            if ( old[i] != 0 || old[i + 1] != 0 )
+            {
+                int slot = indexOf( old[i], old[i + 1] );
+
+                table[slot] = old[i];
+                table[slot + 1] = old[i + 1];
+            }
+        }
+    }
+
+    private void allocate( int capacity )
+    {
+        table = new long[capacity * 2];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the smallest power of two number of slots which holds the
+     * given number of entries at a load factor of at most one half.
+     */
+    private static int tableCapacity( int entries )
+    {
+        int capacity = MIN_CAPACITY;
+
+        while ( capacity < entries * 2 )
+        {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+}
@@ -0,0 +1,417 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.InsertMode;
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.RoutingStrategy;
+
+/**
+ * Batch handler which partitions added objects across a number of writer
+ * batch handlers, each with its own database connection, so that a single
+ * load can use multiple database backends. Each writer flushes independently
+ * as its buffer fills up, and flush joins the flushing of all writers.
+ *
+ * Writers using the {@link InsertMode#MULTI_ROW} insert mode are set to
+ * flush asynchronously, so that the statements of the writers execute in
+ * parallel while objects are added. Writers can be configured further
+ * through {@link #getWriters()} before the handler is initialized.
+ *
+ * Objects which are not added, i.e. which are inserted, updated, deleted or
+ * looked up, are routed to a writer by the hash of their unique values.
+ * Writers run on separate connections and flush in parallel, so operations
+ * on the same object are only ordered when they are routed to the same
+ * writer. With {@link RoutingStrategy#ROUND_ROBIN}, an added object can land
+ * on another writer than later operations on it, see the routing strategy.
+ */
+public class ParallelBatchHandler<T>
+    implements BatchHandler<T>
+{
+    private final List<AbstractBatchHandler<T>> writers;
+
+    private final RoutingStrategy routing;
+
+    private int nextWriter = 0;
+
+    /**
+     * Creates a parallel batch handler. Overrides the asynchronous flush
+     * setting of the given writers, which is switched on for writers using
+     * the {@link InsertMode#MULTI_ROW} insert mode and off for other writers.
+     *
+     * @param writers the writers, which must not be initialized.
+     * @param routing the strategy for routing added objects to writers.
+     */
+    public ParallelBatchHandler( List<? extends AbstractBatchHandler<T>> writers, RoutingStrategy routing )
+    {
+        if ( writers == null || writers.isEmpty() )
+        {
+            throw new IllegalArgumentException( "At least one writer is required" );
+        }
+
+        this.writers = new ArrayList<>( writers );
+        this.routing = routing;
+
+        for ( AbstractBatchHandler<T> writer : this.writers )
+        {
+            writer.setAsyncFlush( InsertMode.MULTI_ROW == writer.getInsertMode() );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // BatchHandler implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public BatchHandler<T> init()
+    {
+        try
+        {
+            for ( AbstractBatchHandler<T> writer : writers )
+            {
+                writer.init();
+            }
+        }
+        catch ( RuntimeException ex )
+        {
+            close();
+
+            throw ex;
+        }
+
+        return this;
+    }
+
+    @Override
+    public JdbcConfiguration getConfiguration()
+    {
+        return writers.get( 0 ).getConfiguration();
+    }
+
+    @Override
+    public boolean addObject( T object )
+    {
+        AbstractBatchHandler<T> writer;
+
+        if ( RoutingStrategy.ROUND_ROBIN == routing )
+        {
+            writer = writers.get( nextWriter );
+
+            nextWriter = (nextWriter + 1) % writers.size();
+        }
+        else
+        {
+            writer = getWriter( object );
+        }
+
+        return writer.addObject( object );
+    }
+
+    @Override
+    public boolean insertObject( T object )
+    {
+        return getWriter( object ).insertObject( object );
+    }
+
+    @Override
+    public T findObject( T arg )
+    {
+        return getWriter( arg ).findObject( arg );
+    }
+
+    @Override
+    public Stream<T> stream( String whereClause )
+    {
+        return writers.get( 0 ).stream( whereClause );
+    }
+
+    @Override
+    public Stream<T> scan()
+    {
+        return writers.get( 0 ).scan();
+    }
+
+    @Override
+    public Map<List<Object>, T> findObjects( Collection<T> args )
+    {
+        final Map<List<Object>, T> objects = new HashMap<>();
+
+        partition( args ).forEach( ( writer, partition ) -> objects.putAll( writer.findObjects( partition ) ) );
+
+        return objects;
+    }
+
+    @Override
+    public void updateObject( T object )
+    {
+        getWriter( object ).updateObject( object );
+    }
+
+    @Override
+    public void addUpdateObject( T object )
+    {
+        getWriter( object ).addUpdateObject( object );
+    }
+
+    @Override
+    public void deleteObject( T object )
+    {
+        getWriter( object ).deleteObject( object );
+    }
+
+    @Override
+    public void addDeleteObject( T object )
+    {
+        getWriter( object ).addDeleteObject( object );
+    }
+
+    @Override
+    public boolean objectExists( T object )
+    {
+        return getWriter( object ).objectExists( object );
+    }
+
+    @Override
+    public Set<List<Object>> existingKeys( Collection<T> objects )
+    {
+        final Set<List<Object>> keys = new LinkedHashSet<>();
+
+        partition( objects ).forEach( ( writer, partition ) -> keys.addAll( writer.existingKeys( partition ) ) );
+
+        return keys;
+    }
+
+    @Override
+    public List<T> filterNonExisting( Collection<T> objects )
+    {
+        final Set<List<Object>> keys = existingKeys( objects );
+
+        final AbstractBatchHandler<T> writer = writers.get( 0 );
+
+        return objects.stream()
+            .filter( object -> !keys.contains( writer.getUniqueValues( object ) ) )
+            .collect( Collectors.toList() );
+    }
+
+    @Override
+    public int getAddObjectCount()
+    {
+        int count = 0;
+
+        for ( AbstractBatchHandler<T> writer : writers )
+        {
+            count += writer.getAddObjectCount();
+        }
+
+        return count;
+    }
+
+    @Override
+    public long getInsertedObjectCount()
+    {
+        long count = 0;
+
+        for ( AbstractBatchHandler<T> writer : writers )
+        {
+            count += writer.getInsertedObjectCount();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of rows inserted by the last flush of all writers.
+     *
+     * @return the number of rows inserted by the last flush.
+     */
+    public long getLastFlushInsertedObjectCount()
+    {
+        long count = 0;
+
+        for ( AbstractBatchHandler<T> writer : writers )
+        {
+            count += writer.getLastFlushInsertedObjectCount();
+        }
+
+        return count;
+    }
+
+    /**
+     * Flushes all writers in parallel and waits for them to complete. All
+     * writers are closed afterwards, and the first failure is rethrown.
+     */
+    @Override
+    public void flush()
+    {
+        if ( isClosed() )
+        {
+            throw new RuntimeException( "Cannot flush a closed connection!" );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( writers.size() );
+
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for ( AbstractBatchHandler<T> writer : writers )
+            {
+                futures.add( executor.submit( writer::flush ) );
+            }
+
+            RuntimeException failure = null;
+
+            for ( Future<?> future : futures )
+            {
+                try
+                {
+                    future.get();
+                }
+                catch ( ExecutionException ex )
+                {
+                    if ( failure == null )
+                    {
+                        failure = ex.getCause() instanceof RuntimeException ?
+                            (RuntimeException) ex.getCause() : new RuntimeException( "Failed to flush BatchHandler", ex.getCause() );
+                    }
+                }
+                catch ( InterruptedException ex )
+                {
+                    Thread.currentThread().interrupt();
+
+                    throw new RuntimeException( "Interrupted while flushing BatchHandler", ex );
+                }
+            }
+
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+
+            close();
+        }
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        for ( AbstractBatchHandler<T> writer : writers )
+        {
+            if ( !writer.isClosed() )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Closes the statements and connections of all writers.
+     */
+    @Override
+    public void close()
+    {
+        for ( AbstractBatchHandler<T> writer : writers )
+        {
+            if ( !writer.isClosed() )
+            {
+                writer.close();
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the writer for the given object based on the hash of its unique
+     * values.
+     *
+     * @param object the object.
+     * @return a writer.
+     */
+    private AbstractBatchHandler<T> getWriter( T object )
+    {
+        List<Object> uniqueValues = writers.get( 0 ).getUniqueValues( object );
+
+        int hash = uniqueValues != null ? uniqueValues.hashCode() : 0;
+
+        return writers.get( Math.floorMod( hash, writers.size() ) );
+    }
+
+    /**
+     * Partitions the given objects by the writer they are routed to based on
+     * the hash of their unique values.
+     *
+     * @param objects the objects.
+     * @return the objects for each writer.
+     */
+    private Map<AbstractBatchHandler<T>, List<T>> partition( Collection<T> objects )
+    {
+        final Map<AbstractBatchHandler<T>, List<T>> partitions = new LinkedHashMap<>();
+
+        for ( T object : objects )
+        {
+            partitions.computeIfAbsent( getWriter( object ), w -> new ArrayList<>() ).add( object );
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Returns the writers of this batch handler.
+     *
+     * @return the writers.
+     */
+    public List<AbstractBatchHandler<T>> getWriters()
+    {
+        return writers;
+    }
+}
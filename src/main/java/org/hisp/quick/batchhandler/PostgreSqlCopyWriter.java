@@ -0,0 +1,400 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.quick.CopyFormat;
+import org.hisp.quick.ValueSink;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Class which encodes rows in the text or CSV format of the PostgreSQL COPY
+ * protocol and streams them to a COPY FROM STDIN operation. Rows are encoded
+ * into a character buffer which is written to the stream as UTF-8 whenever it
+ * exceeds the buffer size, and when the copy is ended. Requires the
+ * PostgreSQL JDBC driver on the classpath.
+ */
+public class PostgreSqlCopyWriter
+    implements ValueSink
+{
+    /**
+     * Number of characters buffered before being written to the stream.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    private static final String TEXT_NULL = "\\N";
+
+    private static final char TEXT_DELIMITER = '\t';
+
+    private static final char CSV_DELIMITER = ',';
+
+    private static final char CSV_QUOTE = '"';
+
+    private static final char ROW_END = '\n';
+
+    private final CopyIn copyIn;
+
+    private final CopyFormat format;
+
+    private final StringBuilder rowBuffer = new StringBuilder( BUFFER_SIZE );
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    private final ByteBuffer byteBuffer = ByteBuffer.allocate( BUFFER_SIZE * 2 );
+
+    private final Calendar calendar = Calendar.getInstance();
+
+    private int rowCount = 0;
+
+    private int columnCount = 0;
+
+    public PostgreSqlCopyWriter( CopyIn copyIn, CopyFormat format )
+    {
+        this.copyIn = copyIn;
+        this.format = format;
+    }
+
+    /**
+     * Starts a COPY FROM STDIN operation on the given connection and returns
+     * a writer for it. The connection must be a PostgreSQL connection or a
+     * wrapper for one.
+     *
+     * @param connection the connection.
+     * @param sql the COPY SQL statement.
+     * @param format the format of the copied data.
+     * @return a copy writer.
+     * @throws SQLException if the copy operation could not be started.
+     */
+    public static PostgreSqlCopyWriter open( Connection connection, String sql, CopyFormat format )
+        throws SQLException
+    {
+        CopyIn copyIn = connection.unwrap( PGConnection.class ).getCopyAPI().copyIn( sql );
+
+        return new PostgreSqlCopyWriter( copyIn, format );
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Encodes the given values as a row and appends it to the stream.
+     *
+     * @param values the values of the row, in column order.
+     * @throws SQLException if writing to the stream failed.
+     */
+    public void writeRow( List<Object> values )
+        throws SQLException
+    {
+        for ( Object value : values )
+        {
+            putObject( value );
+        }
+
+        endRow();
+    }
+
+    /**
+     * Ends the row of the values written through the {@link ValueSink}
+     * methods and appends it to the stream.
+     *
+     * @throws SQLException if writing to the stream failed.
+     */
+    public void endRow()
+        throws SQLException
+    {
+        rowBuffer.append( ROW_END );
+
+        rowCount++;
+        columnCount = 0;
+
+        if ( rowBuffer.length() >= BUFFER_SIZE )
+        {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Writes remaining rows to the stream and ends the copy operation.
+     *
+     * @return the number of rows copied, as reported by the database.
+     * @throws SQLException if the copy operation failed.
+     */
+    public long endCopy()
+        throws SQLException
+    {
+        writeBuffer();
+
+        return copyIn.endCopy();
+    }
+
+    /**
+     * Cancels the copy operation if it is still active. Rows written so far
+     * are discarded by the database.
+     *
+     * @throws SQLException if the cancellation failed.
+     */
+    public void cancelCopy()
+        throws SQLException
+    {
+        if ( copyIn.isActive() )
+        {
+            copyIn.cancelCopy();
+        }
+    }
+
+    /**
+     * Returns the number of rows written to this writer.
+     *
+     * @return the number of rows written.
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    // -------------------------------------------------------------------------
+    // ValueSink implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void putInt( int value )
+    {
+        startValue().append( value );
+    }
+
+    @Override
+    public void putLong( long value )
+    {
+        startValue().append( value );
+    }
+
+    @Override
+    public void putDouble( double value )
+    {
+        startValue().append( value );
+    }
+
+    @Override
+    public void putBoolean( boolean value )
+    {
+        startValue().append( value ? 't' : 'f' );
+    }
+
+    @Override
+    public void putString( String value )
+    {
+        startValue();
+        appendValue( value );
+    }
+
+    @Override
+    public void putDate( Date value )
+    {
+        startValue();
+        appendValue( value );
+    }
+
+    @Override
+    public void putNull()
+    {
+        startValue();
+        appendValue( null );
+    }
+
+    @Override
+    public void putObject( Object value )
+    {
+        startValue();
+        appendValue( value );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private StringBuilder startValue()
+    {
+        if ( columnCount++ > 0 )
+        {
+            rowBuffer.append( CopyFormat.CSV == format ? CSV_DELIMITER : TEXT_DELIMITER );
+        }
+
+        return rowBuffer;
+    }
+
+    private void appendValue( Object value )
+    {
+        if ( value == null )
+        {
+            if ( CopyFormat.TEXT == format )
+            {
+                rowBuffer.append( TEXT_NULL );
+            }
+        }
+        else if ( value instanceof String )
+        {
+            appendString( (String) value );
+        }
+        else if ( value instanceof Boolean )
+        {
+            rowBuffer.append( (Boolean) value ? 't' : 'f' );
+        }
+        else if ( value instanceof Date )
+        {
+            appendDate( (Date) value );
+        }
+        else if ( value instanceof Number )
+        {
+            rowBuffer.append( value );
+        }
+        else
+        {
+            appendString( String.valueOf( value ) );
+        }
+    }
+
+    private void appendString( String value )
+    {
+        if ( CopyFormat.CSV == format )
+        {
+            rowBuffer.append( CSV_QUOTE );
+
+            for ( int i = 0; i < value.length(); i++ )
+            {
+                char c = value.charAt( i );
+
+                if ( c == CSV_QUOTE )
+                {
+                    rowBuffer.append( CSV_QUOTE );
+                }
+
+                rowBuffer.append( c );
+            }
+
+            rowBuffer.append( CSV_QUOTE );
+        }
+        else
+        {
+            for ( int i = 0; i < value.length(); i++ )
+            {
+                char c = value.charAt( i );
+
+                switch ( c )
+                {
+                    case '\\':
+                        rowBuffer.append( "\\\\" );
+                        break;
+                    case '\t':
+                        rowBuffer.append( "\\t" );
+                        break;
+                    case '\n':
+                        rowBuffer.append( "\\n" );
+                        break;
+                    case '\r':
+                        rowBuffer.append( "\\r" );
+                        break;
+                    default:
+                        rowBuffer.append( c );
+                }
+            }
+        }
+    }
+
+    private void appendDate( Date value )
+    {
+        calendar.setTime( value );
+
+        int month = calendar.get( Calendar.MONTH ) + 1;
+        int day = calendar.get( Calendar.DAY_OF_MONTH );
+
+        rowBuffer.append( calendar.get( Calendar.YEAR ) ).append( '-' );
+        rowBuffer.append( month < 10 ? "0" : "" ).append( month ).append( '-' );
+        rowBuffer.append( day < 10 ? "0" : "" ).append( day );
+    }
+
+    /**
+     * Encodes the buffered rows as UTF-8 and writes them to the stream.
+     */
+    private void writeBuffer()
+        throws SQLException
+    {
+        if ( rowBuffer.length() == 0 )
+        {
+            return;
+        }
+
+        CharBuffer chars = CharBuffer.wrap( rowBuffer );
+
+        encoder.reset();
+
+        CoderResult result;
+
+        do
+        {
+            result = encoder.encode( chars, byteBuffer, true );
+
+            if ( !result.isUnderflow() && !result.isOverflow() )
+            {
+                throw new SQLException( "Failed to encode COPY data: " + result );
+            }
+
+            writeBytes();
+        }
+        while ( result.isOverflow() );
+
+        encoder.flush( byteBuffer );
+
+        writeBytes();
+
+        rowBuffer.setLength( 0 );
+    }
+
+    private void writeBytes()
+        throws SQLException
+    {
+        if ( byteBuffer.position() > 0 )
+        {
+            copyIn.writeToCopy( byteBuffer.array(), 0, byteBuffer.position() );
+
+            byteBuffer.clear();
+        }
+    }
+}
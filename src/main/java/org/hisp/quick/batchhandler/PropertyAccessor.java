@@ -0,0 +1,273 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import org.hisp.quick.ValueSink;
+
+/**
+ * Accessor of a property of an entity class, bound once to its getter and
+ * setter through {@link LambdaMetafactory}, so that reading and writing the
+ * property costs the same as a direct method call. Primitive int, long and
+ * double properties are accessed through primitive functional interfaces,
+ * which avoids boxing.
+ */
+class PropertyAccessor<T>
+{
+    private enum Kind
+    {
+        INT, LONG, DOUBLE, BOOLEAN, STRING, DATE, OBJECT
+    }
+
+    private final Kind kind;
+
+    private final Class<?> type;
+
+    private ToIntFunction<T> intGetter;
+
+    private ToLongFunction<T> longGetter;
+
+    private ToDoubleFunction<T> doubleGetter;
+
+    private Function<T, Object> getter;
+
+    private ObjIntConsumer<T> intSetter;
+
+    private ObjLongConsumer<T> longSetter;
+
+    private ObjDoubleConsumer<T> doubleSetter;
+
+    private BiConsumer<T, Object> setter;
+
+    /**
+     * @param lookup the lookup with access to the getter and setter.
+     * @param entityClass the entity class.
+     * @param getterMethod the getter.
+     * @param setterMethod the setter.
+     * @throws ReflectiveOperationException if binding the accessors failed.
+     */
+    PropertyAccessor( MethodHandles.Lookup lookup, Class<T> entityClass, Method getterMethod, Method setterMethod )
+        throws ReflectiveOperationException
+    {
+        this.type = getterMethod.getReturnType();
+        this.kind = getKind( type );
+
+        final MethodHandle get = lookup.unreflect( getterMethod );
+        final MethodHandle set = lookup.unreflect( setterMethod );
+
+        switch ( kind )
+        {
+            case INT:
+                intGetter = bind( lookup, ToIntFunction.class, "applyAsInt", get, MethodType.methodType( int.class, entityClass ) );
+                intSetter = bind( lookup, ObjIntConsumer.class, "accept", set, MethodType.methodType( void.class, entityClass, int.class ) );
+                break;
+            case LONG:
+                longGetter = bind( lookup, ToLongFunction.class, "applyAsLong", get, MethodType.methodType( long.class, entityClass ) );
+                longSetter = bind( lookup, ObjLongConsumer.class, "accept", set, MethodType.methodType( void.class, entityClass, long.class ) );
+                break;
+            case DOUBLE:
+                doubleGetter = bind( lookup, ToDoubleFunction.class, "applyAsDouble", get, MethodType.methodType( double.class, entityClass ) );
+                doubleSetter = bind( lookup, ObjDoubleConsumer.class, "accept", set, MethodType.methodType( void.class, entityClass, double.class ) );
+                break;
+            default:
+                break;
+        }
+
+        final Class<?> boxedType = MethodType.methodType( type ).wrap().returnType();
+
+        getter = bind( lookup, Function.class, "apply", get, MethodType.methodType( boxedType, entityClass ) );
+        setter = bind( lookup, BiConsumer.class, "accept", set, MethodType.methodType( void.class, entityClass, boxedType ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the value of the property of the given object.
+     *
+     * @param object the object.
+     * @return the value.
+     */
+    Object get( T object )
+    {
+        return getter.apply( object );
+    }
+
+    /**
+     * Writes the value of the property of the given object to the given sink.
+     *
+     * @param object the object.
+     * @param sink the value sink.
+     * @throws SQLException if writing the value failed.
+     */
+    void write( T object, ValueSink sink )
+        throws SQLException
+    {
+        switch ( kind )
+        {
+            case INT:
+                sink.putInt( intGetter.applyAsInt( object ) );
+                break;
+            case LONG:
+                sink.putLong( longGetter.applyAsLong( object ) );
+                break;
+            case DOUBLE:
+                sink.putDouble( doubleGetter.applyAsDouble( object ) );
+                break;
+            case STRING:
+                sink.putString( (String) getter.apply( object ) );
+                break;
+            case DATE:
+                sink.putDate( (Date) getter.apply( object ) );
+                break;
+            default:
+                sink.putObject( getter.apply( object ) );
+        }
+    }
+
+    /**
+     * Reads the value of the given column of the current row of the given
+     * result set into the property of the given object.
+     *
+     * @param resultSet the result set.
+     * @param column the 1-based column index.
+     * @param object the object.
+     * @throws SQLException if reading the value failed.
+     */
+    void read( ResultSet resultSet, int column, T object )
+        throws SQLException
+    {
+        switch ( kind )
+        {
+            case INT:
+                intSetter.accept( object, resultSet.getInt( column ) );
+                break;
+            case LONG:
+                longSetter.accept( object, resultSet.getLong( column ) );
+                break;
+            case DOUBLE:
+                doubleSetter.accept( object, resultSet.getDouble( column ) );
+                break;
+            case BOOLEAN:
+                setter.accept( object, type.isPrimitive() ? resultSet.getBoolean( column ) : resultSet.getObject( column, Boolean.class ) );
+                break;
+            case STRING:
+                setter.accept( object, resultSet.getString( column ) );
+                break;
+            case DATE:
+                setter.accept( object, resultSet.getTimestamp( column ) );
+                break;
+            default:
+                setter.accept( object, resultSet.getObject( column, type ) );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static Kind getKind( Class<?> type )
+    {
+        if ( type == int.class )
+        {
+            return Kind.INT;
+        }
+        else if ( type == long.class )
+        {
+            return Kind.LONG;
+        }
+        else if ( type == double.class )
+        {
+            return Kind.DOUBLE;
+        }
+        else if ( type == boolean.class || type == Boolean.class )
+        {
+            return Kind.BOOLEAN;
+        }
+        else if ( type == String.class )
+        {
+            return Kind.STRING;
+        }
+        else if ( type == Date.class )
+        {
+            return Kind.DATE;
+        }
+
+        return Kind.OBJECT;
+    }
+
+    /**
+     * Binds the given method handle to an instance of the given functional
+     * interface through {@link LambdaMetafactory}.
+     *
+     * @param lookup the lookup with access to the method.
+     * @param functionType the functional interface.
+     * @param methodName the name of the method of the functional interface.
+     * @param target the method handle.
+     * @param instantiatedType the type of the method of the functional
+     *        interface as seen for the entity class.
+     * @return an instance of the functional interface.
+     */
+    @SuppressWarnings( "unchecked" )
+    static <F> F bind( MethodHandles.Lookup lookup, Class<?> functionType, String methodName,
+        MethodHandle target, MethodType instantiatedType )
+        throws ReflectiveOperationException
+    {
+        try
+        {
+            return (F) LambdaMetafactory.metafactory( lookup, methodName, MethodType.methodType( functionType ),
+                instantiatedType.erase(), target, instantiatedType ).getTarget().invoke();
+        }
+        catch ( ReflectiveOperationException | RuntimeException | Error ex )
+        {
+            throw ex;
+        }
+        catch ( Throwable ex )
+        {
+            throw new ReflectiveOperationException( "Failed to bind accessor: " + target, ex );
+        }
+    }
+}
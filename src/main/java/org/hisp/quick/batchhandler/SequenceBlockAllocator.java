@@ -0,0 +1,176 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Allocator of identifiers from a database sequence, which reserves blocks
+ * of sequence values with a single statement and hands them out from memory.
+ * Identifiers are handed out through an atomic counter, so that concurrent
+ * batch handlers share a block without locking, and only the reservation of
+ * a new block is synchronized. Allocators are shared per data source and
+ * sequence name, so that all batch handlers writing to the same sequence
+ * through a data source take ids from the same block, which is reserved with
+ * the block size of the handler which exhausted the previous block. The
+ * allocators of a data source are held through a weak reference to the data
+ * source, and are discarded with it. Values which are reserved but not
+ * handed out are lost, which leaves gaps in the sequence as does any other
+ * use of sequences.
+ */
+public class SequenceBlockAllocator
+{
+    private static final Log log = LogFactory.getLog( SequenceBlockAllocator.class );
+
+    private static final Map<Object, ConcurrentMap<String, SequenceBlockAllocator>> ALLOCATORS =
+        Collections.synchronizedMap( new WeakHashMap<>() );
+
+    private final String sequenceName;
+
+    private volatile Block block = new Block( new long[0] );
+
+    public SequenceBlockAllocator( String sequenceName )
+    {
+        this.sequenceName = sequenceName;
+    }
+
+    /**
+     * Returns the shared allocator for the given data source and sequence name.
+     *
+     * @param dataSource the data source, used as key only.
+     * @param sequenceName the sequence name.
+     * @return the allocator.
+     */
+    public static SequenceBlockAllocator getInstance( Object dataSource, String sequenceName )
+    {
+        return ALLOCATORS.computeIfAbsent( dataSource, k -> new ConcurrentHashMap<>() )
+            .computeIfAbsent( sequenceName, SequenceBlockAllocator::new );
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the next identifier. Reserves a new block through the given
+     * statement if the current block is exhausted.
+     *
+     * @param connection the connection to reserve a new block with.
+     * @param blockSql the select SQL statement returning the values of a new
+     *        block, one per row.
+     * @return the next identifier.
+     * @throws SQLException if reserving a new block failed.
+     */
+    public long nextId( Connection connection, String blockSql )
+        throws SQLException
+    {
+        while ( true )
+        {
+            final Block current = block;
+            final int index = current.next.getAndIncrement();
+
+            if ( index < current.ids.length )
+            {
+                return current.ids[index];
+            }
+
+            synchronized ( this )
+            {
+                if ( block == current )
+                {
+                    block = reserve( connection, blockSql );
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Block reserve( Connection connection, String blockSql )
+        throws SQLException
+    {
+        log.debug( "Sequence block SQL: " + blockSql );
+
+        long[] ids = new long[64];
+        int size = 0;
+
+        try ( Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery( blockSql ) )
+        {
+            while ( resultSet.next() )
+            {
+                if ( size == ids.length )
+                {
+                    ids = Arrays.copyOf( ids, size * 2 );
+                }
+
+                ids[size++] = resultSet.getLong( 1 );
+            }
+        }
+
+        if ( size == 0 )
+        {
+            throw new SQLException( "No values reserved from sequence: " + sequenceName );
+        }
+
+        log.debug( "Reserved values from sequence: " + sequenceName + ", count: " + size );
+
+        return new Block( Arrays.copyOf( ids, size ) );
+    }
+
+    /**
+     * Block of reserved identifiers with a counter of handed out identifiers.
+     */
+    private static final class Block
+    {
+        private final long[] ids;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Block( long[] ids )
+        {
+            this.ids = ids;
+        }
+    }
+}
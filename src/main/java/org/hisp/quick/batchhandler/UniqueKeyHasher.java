@@ -0,0 +1,299 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.hisp.quick.ValueSink;
+
+/**
+ * Value sink which computes a 128-bit fingerprint of the values written to
+ * it. Values are normalized by type so that equal values produce equal
+ * fingerprints regardless of their Java representation, e.g. integers are
+ * hashed as longs. Values are also normalized the way they are encoded as
+ * SQL literals and compared by the database, so that objects match the rows
+ * read back for them: dates are hashed by their day in the default time
+ * zone. Strings are hashed exactly, so that case and trailing spaces are
+ * significant, and together with their length, so that the boundaries
+ * between values are part of the fingerprint.
+ */
+public class UniqueKeyHasher
+    implements ValueSink
+{
+    private static final long SEED_HIGH = 0x9E3779B97F4A7C15L;
+
+    private static final long SEED_LOW = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long MULTIPLIER_HIGH = 0x87C37B91114253D5L;
+
+    private static final long MULTIPLIER_LOW = 0x4CF5AD432745937FL;
+
+    private static final long TAG_NULL = 1;
+
+    private static final long TAG_NUMBER = 2;
+
+    private static final long TAG_DECIMAL = 3;
+
+    private static final long TAG_BOOLEAN = 4;
+
+    private static final long TAG_STRING = 5;
+
+    private static final long TAG_DATE = 6;
+
+    private long high;
+
+    private long low;
+
+    private int count;
+
+    public UniqueKeyHasher()
+    {
+        reset();
+    }
+
+    // -------------------------------------------------------------------------
+    // Public methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Resets the fingerprint, to be called before the values of the next key
+     * are written.
+     */
+    public void reset()
+    {
+        high = SEED_HIGH;
+        low = SEED_LOW;
+        count = 0;
+    }
+
+    /**
+     * Returns the number of values written since the last reset.
+     *
+     * @return the number of values.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the high 64 bits of the fingerprint of the values written.
+     *
+     * @return the high 64 bits of the fingerprint.
+     */
+    public long getHigh()
+    {
+        return fmix( high ^ count );
+    }
+
+    /**
+     * Returns the low 64 bits of the fingerprint of the values written.
+     *
+     * @return the low 64 bits of the fingerprint.
+     */
+    public long getLow()
+    {
+        return fmix( low + high );
+    }
+
+    // -------------------------------------------------------------------------
+    // ValueSink implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void putInt( int value )
+    {
+        putLong( value );
+    }
+
+    @Override
+    public void putLong( long value )
+    {
+        count++;
+        mix( TAG_NUMBER );
+        mix( value );
+    }
+
+    @Override
+    public void putDouble( double value )
+    {
+        count++;
+        mix( TAG_DECIMAL );
+        mix( Double.doubleToLongBits( value ) );
+    }
+
+    @Override
+    public void putBoolean( boolean value )
+    {
+        count++;
+        mix( TAG_BOOLEAN );
+        mix( value ? 1 : 0 );
+    }
+
+    @Override
+    public void putString( String value )
+    {
+        if ( value == null )
+        {
+            putNull();
+            return;
+        }
+
+        count++;
+        mix( TAG_STRING );
+
+        final int length = value.length();
+
+        int i = 0;
+
+        for ( ; i + 4 <= length; i += 4 )
+        {
+            mix( (long) value.charAt( i ) | (long) value.charAt( i + 1 ) << 16 |
+                (long) value.charAt( i + 2 ) << 32 | (long) value.charAt( i + 3 ) << 48 );
+        }
+
+        long tail = 0;
+
+        for ( int shift = 0; i < length; i++, shift += 16 )
+        {
+            tail |= (long) value.charAt( i ) << shift;
+        }
+
+        mix( tail );
+        mix( length );
+    }
+
+    @Override
+    public void putDate( Date value )
+    {
+        if ( value == null )
+        {
+            putNull();
+            return;
+        }
+
+        count++;
+        mix( TAG_DATE );
+        mix( Instant.ofEpochMilli( value.getTime() ).atZone( ZoneId.systemDefault() ).toLocalDate().toEpochDay() );
+    }
+
+    @Override
+    public void putNull()
+    {
+        count++;
+        mix( TAG_NULL );
+    }
+
+    @Override
+    public void putObject( Object value )
+    {
+        if ( value == null )
+        {
+            putNull();
+        }
+        else if ( value instanceof String )
+        {
+            putString( (String) value );
+        }
+        else if ( value instanceof Integer || value instanceof Long ||
+            value instanceof Short || value instanceof Byte )
+        {
+            putLong( ( (Number) value ).longValue() );
+        }
+        else if ( value instanceof Double || value instanceof Float )
+        {
+            putDouble( ( (Number) value ).doubleValue() );
+        }
+        else if ( value instanceof BigInteger && ( (BigInteger) value ).bitLength() < 64 )
+        {
+            putLong( ( (BigInteger) value ).longValue() );
+        }
+        else if ( value instanceof BigDecimal )
+        {
+            putDecimal( (BigDecimal) value );
+        }
+        else if ( value instanceof Boolean )
+        {
+            putBoolean( (Boolean) value );
+        }
+        else if ( value instanceof Date )
+        {
+            putDate( (Date) value );
+        }
+        else
+        {
+            putString( String.valueOf( value ) );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writes a decimal as a long if it is integral and within range, so that
+     * numeric database columns match integer values, and as a double if not.
+     */
+    private void putDecimal( BigDecimal value )
+    {
+        if ( value.scale() <= 0 || value.stripTrailingZeros().scale() <= 0 )
+        {
+            BigInteger integer = value.toBigInteger();
+
+            if ( integer.bitLength() < 64 )
+            {
+                putLong( integer.longValue() );
+                return;
+            }
+        }
+
+        putDouble( value.doubleValue() );
+    }
+
+    private void mix( long value )
+    {
+        high = Long.rotateLeft( ( high ^ value ) * MULTIPLIER_HIGH, 31 );
+        low = Long.rotateLeft( ( low + value ) * MULTIPLIER_LOW, 27 ) ^ high;
+    }
+
+    private static long fmix( long value )
+    {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+
+        return value;
+    }
+}
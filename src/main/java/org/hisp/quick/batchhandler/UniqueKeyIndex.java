@@ -0,0 +1,278 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of objects by the fingerprints of their unique values, which looks up
+ * the objects matching the unique values of result set rows. Values are
+ * compared as by {@link ExistenceIndex}, so that rows match objects
+ * regardless of the Java types returned by the driver, and values of CHAR
+ * columns are compared without trailing spaces. For exclusive unique
+ * columns, a row matches the objects with the same non-null value for any
+ * unique column.
+ */
+class UniqueKeyIndex<T>
+{
+    private final AbstractBatchHandler<T> batchHandler;
+
+    private final int columnCount;
+
+    private final boolean inclusive;
+
+    private final List<Map<Fingerprint, List<T>>> objects = new ArrayList<>();
+
+    private final int[] columnIndexes;
+
+    private final boolean[] paddedColumns;
+
+    private final UniqueKeyHasher hasher = new UniqueKeyHasher();
+
+    /**
+     * @param batchHandler the batch handler defining the unique columns.
+     * @param metaData the meta data of the result set to match rows of,
+     *        which must contain the unique columns.
+     * @throws SQLException if a unique column is not in the result set.
+     */
+    UniqueKeyIndex( AbstractBatchHandler<T> batchHandler, ResultSetMetaData metaData )
+        throws SQLException
+    {
+        final List<String> columns = batchHandler.getUniqueColumns();
+
+        this.batchHandler = batchHandler;
+        this.columnCount = columns.size();
+        this.inclusive = columnCount == 1 || batchHandler.isInclusiveUniqueColumns();
+        this.columnIndexes = new int[columnCount];
+        this.paddedColumns = new boolean[columnCount];
+
+        for ( int i = 0; i < ( inclusive ? 1 : columnCount ); i++ )
+        {
+            objects.add( new HashMap<>() );
+        }
+
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            for ( int column = 1; column <= metaData.getColumnCount() && columnIndexes[i] == 0; column++ )
+            {
+                if ( columns.get( i ).equalsIgnoreCase( metaData.getColumnLabel( column ) ) )
+                {
+                    final int type = metaData.getColumnType( column );
+
+                    columnIndexes[i] = column;
+                    paddedColumns[i] = type == Types.CHAR || type == Types.NCHAR;
+                }
+            }
+
+            if ( columnIndexes[i] == 0 )
+            {
+                throw new SQLException( "Unique column not found: " + columns.get( i ) );
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Package methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the given object by its unique values.
+     *
+     * @param object the object.
+     */
+    void add( T object )
+    {
+        final List<Object> values = batchHandler.getUniqueValues( object );
+
+        if ( inclusive )
+        {
+            hasher.reset();
+
+            for ( int i = 0; i < columnCount; i++ )
+            {
+                hasher.putObject( unpad( i, values.get( i ) ) );
+            }
+
+            put( 0, object );
+        }
+        else
+        {
+            for ( int i = 0; i < columnCount; i++ )
+            {
+                if ( values.get( i ) != null )
+                {
+                    hasher.reset();
+                    hasher.putObject( unpad( i, values.get( i ) ) );
+
+                    put( i, object );
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the objects matching the unique values of the current row of
+     * the given result set, each object once.
+     *
+     * @param resultSet the result set.
+     * @return the matching objects, empty if none match.
+     * @throws SQLException if reading the result set failed.
+     */
+    List<T> match( ResultSet resultSet )
+        throws SQLException
+    {
+        if ( inclusive )
+        {
+            hasher.reset();
+
+            for ( int i = 0; i < columnCount; i++ )
+            {
+                hasher.putObject( unpad( i, resultSet.getObject( columnIndexes[i] ) ) );
+            }
+
+            return objects.get( 0 ).getOrDefault( getFingerprint(), Collections.emptyList() );
+        }
+
+        final List<T> matches = new ArrayList<>();
+
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            final Object value = resultSet.getObject( columnIndexes[i] );
+
+            if ( value != null )
+            {
+                hasher.reset();
+                hasher.putObject( unpad( i, value ) );
+
+                for ( T object : objects.get( i ).getOrDefault( getFingerprint(), Collections.emptyList() ) )
+                {
+                    if ( !containsInstance( matches, object ) )
+                    {
+                        matches.add( object );
+                    }
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void put( int index, T object )
+    {
+        objects.get( index ).computeIfAbsent( getFingerprint(), k -> new ArrayList<>( 1 ) ).add( object );
+    }
+
+    private Fingerprint getFingerprint()
+    {
+        return new Fingerprint( hasher.getHigh(), hasher.getLow() );
+    }
+
+    private static <T> boolean containsInstance( List<T> list, T object )
+    {
+        for ( T element : list )
+        {
+            if ( element == object )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the given value of the unique column with the given index,
+     * without trailing spaces if the column is a CHAR column.
+     */
+    private Object unpad( int index, Object value )
+    {
+        if ( !paddedColumns[index] || !(value instanceof String) )
+        {
+            return value;
+        }
+
+        final String string = (String) value;
+
+        int length = string.length();
+
+        while ( length > 0 && string.charAt( length - 1 ) == ' ' )
+        {
+            length--;
+        }
+
+        return string.substring( 0, length );
+    }
+
+    /**
+     * 128-bit fingerprint of unique values.
+     */
+    private static final class Fingerprint
+    {
+        private final long high;
+
+        private final long low;
+
+        Fingerprint( long high, long low )
+        {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals( Object object )
+        {
+            if ( !(object instanceof Fingerprint) )
+            {
+                return false;
+            }
+
+            final Fingerprint other = (Fingerprint) object;
+
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode( high ^ low );
+        }
+    }
+}
@@ -28,18 +28,48 @@ package org.hisp.quick.factory;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import java.lang.reflect.Constructor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
 import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.batchhandler.AbstractBatchHandler;
 
 /**
+ * Factory which creates batch handlers through a constructor taking a
+ * {@link JdbcConfiguration}, looked up once per batch handler class. Batch
+ * handlers extending {@link AbstractBatchHandler} can optionally be pooled,
+ * in which case handlers released through {@link #releaseBatchHandler} are
+ * reused by subsequent calls along with their statement builder and buffer.
+ *
  * @author Lars Helge Overland
  */
 public class DefaultBatchHandlerFactory
     implements BatchHandlerFactory
 {
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType( BatchHandler.class, JdbcConfiguration.class );
+
+    private static final Map<Class<?>, MethodHandle> CONSTRUCTOR_CACHE = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, BlockingQueue<BatchHandler<?>>> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Pooled handlers which are in use, mapped to the pool they are returned
+     * to, held weakly so that handlers which are never released are not
+     * retained.
+     */
+    private final Map<BatchHandler<?>, BlockingQueue<BatchHandler<?>>> leased = Collections.synchronizedMap( new WeakHashMap<>() );
+
+    private int maxPoolSize = 0;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -51,6 +81,19 @@ public class DefaultBatchHandlerFactory
         this.jdbcConfiguration = jdbcConfiguration;
     }
 
+    /**
+     * Sets the maximum number of released batch handlers kept for reuse per
+     * batch handler class. Handlers are returned to the pool through
+     * {@link #releaseBatchHandler}, and have their settings reset to the
+     * defaults when reused. Defaults to 0, which disables pooling.
+     *
+     * @param maxPoolSize the maximum number of pooled handlers per class.
+     */
+    public void setMaxPoolSize( int maxPoolSize )
+    {
+        this.maxPoolSize = maxPoolSize;
+    }
+
     // -------------------------------------------------------------------------
     // BatchHandlerFactory implementation
     // -------------------------------------------------------------------------
@@ -61,27 +104,99 @@ public class DefaultBatchHandlerFactory
         return createBatchHandler( clazz, jdbcConfiguration );
     }
 
+    /**
+     * Returns a pooled batch handler to the pool after use, closing it if it
+     * is open. Only the first release of a handler taken from the pool has an
+     * effect, and the handler must not be used, including closed, after it is
+     * released, as it may be in use elsewhere. Handlers which were not leased
+     * from a pool of this factory, or were released already, are rejected and
+     * left unchanged, and are closed as usual.
+     *
+     * @param batchHandler the batch handler.
+     */
+    @Override
+    public void releaseBatchHandler( BatchHandler<?> batchHandler )
+    {
+        final BlockingQueue<BatchHandler<?>> pool = leased.remove( batchHandler );
+
+        if ( pool == null )
+        {
+            return;
+        }
+
+        final AbstractBatchHandler<?> pooled = (AbstractBatchHandler<?>) batchHandler;
+
+        pooled.close();
+        pooled.resetSettings();
+
+        pool.offer( pooled );
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    @SuppressWarnings( "unchecked" )
     private <T> BatchHandler<T> createBatchHandler( Class<? extends BatchHandler<T>> clazz, JdbcConfiguration config )
     {
-        try
+        final BlockingQueue<BatchHandler<?>> pool = maxPoolSize > 0 ?
+            pools.computeIfAbsent( clazz, k -> new ArrayBlockingQueue<>( maxPoolSize ) ) : null;
+
+        if ( pool != null )
         {
-            Class<?>[] argumentClasses = new Class<?>[] { JdbcConfiguration.class };
+            final BatchHandler<T> pooled = (BatchHandler<T>) pool.poll();
 
-            Constructor<? extends BatchHandler<T>> constructor = clazz.getConstructor( argumentClasses );
+            if ( pooled != null )
+            {
+                leased.put( pooled, pool );
 
-            Object[] arguments = new Object[] { config };
+                return pooled;
+            }
+        }
 
-            BatchHandler<T> batchHandler = constructor.newInstance( arguments );
+        final BatchHandler<T> batchHandler;
 
-            return batchHandler;
+        try
+        {
+            batchHandler = (BatchHandler<T>) (BatchHandler<?>) getConstructor( clazz ).invokeExact( config );
+        }
+        catch ( Error ex )
+        {
+            throw ex;
         }
-        catch ( Exception ex )
+        catch ( Throwable ex )
         {
             throw new RuntimeException( "Failed to get BatchHandler", ex );
         }
+
+        if ( pool != null && batchHandler instanceof AbstractBatchHandler )
+        {
+            leased.put( batchHandler, pool );
+        }
+
+        return batchHandler;
+    }
+
+    /**
+     * Returns the constructor of the given batch handler class which takes a
+     * {@link JdbcConfiguration}, as a method handle returning a BatchHandler.
+     *
+     * @param clazz the batch handler class.
+     * @return the constructor method handle.
+     */
+    private static MethodHandle getConstructor( Class<?> clazz )
+    {
+        return CONSTRUCTOR_CACHE.computeIfAbsent( clazz, k -> {
+            try
+            {
+                return MethodHandles.publicLookup()
+                    .findConstructor( k, MethodType.methodType( void.class, JdbcConfiguration.class ) )
+                    .asType( CONSTRUCTOR_TYPE );
+            }
+            catch ( ReflectiveOperationException ex )
+            {
+                throw new RuntimeException( "Failed to get BatchHandler", ex );
+            }
+        } );
     }
 }
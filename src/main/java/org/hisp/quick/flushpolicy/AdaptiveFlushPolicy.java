@@ -0,0 +1,159 @@
+package org.hisp.quick.flushpolicy;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.quick.FlushPolicy;
+
+/**
+ * Flush policy which adapts the number of rows in a batch to the throughput
+ * measured when batches are executed. The target number of rows is grown or
+ * shrunk by a constant factor after each batch which reached the target. The
+ * direction is kept while the rows per second improve and reversed when they
+ * drop, so that the target settles around the batch size with the highest
+ * throughput for the table and database at hand. Batches are also flushed
+ * before exceeding the maximum statement length. Such batches are measured
+ * as well, with the target first limited to the number of rows which fit
+ * the maximum length, so that the target keeps adapting for wide rows.
+ */
+public class AdaptiveFlushPolicy
+    implements FlushPolicy
+{
+    private static final double STEP_FACTOR = 1.5;
+
+    /**
+     * Relative drop in throughput which is treated as noise.
+     */
+    private static final double TOLERANCE = 0.05;
+
+    private final int minRows;
+
+    private final int maxRows;
+
+    private final int maxLength;
+
+    private volatile int targetRows;
+
+    private double lastThroughput = 0;
+
+    private boolean growing = true;
+
+    /**
+     * Creates a policy which adapts the number of rows between 100 and 100000,
+     * starting at 1000, within the default maximum statement length.
+     */
+    public AdaptiveFlushPolicy()
+    {
+        this( 100, 100000, 1000, DefaultFlushPolicy.DEFAULT_MAX_LENGTH );
+    }
+
+    /**
+     * @param minRows the minimum target number of rows.
+     * @param maxRows the maximum target number of rows.
+     * @param initialRows the initial target number of rows.
+     * @param maxLength the maximum length in characters of a batch statement,
+     *        0 for no limit.
+     */
+    public AdaptiveFlushPolicy( int minRows, int maxRows, int initialRows, int maxLength )
+    {
+        this.minRows = minRows;
+        this.maxRows = maxRows;
+        this.maxLength = maxLength;
+        this.targetRows = initialRows;
+    }
+
+    // -------------------------------------------------------------------------
+    // FlushPolicy implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isFlushRequired( int rowCount, int length, long ageMillis )
+    {
+        return rowCount >= targetRows || isLengthExceeded( rowCount, length );
+    }
+
+    @Override
+    public synchronized void onFlush( int rowCount, int length, long elapsedNanos )
+    {
+        if ( rowCount < targetRows )
+        {
+            if ( !isLengthExceeded( rowCount, length ) )
+            {
+                return; // Batch was flushed for another reason than the target
+            }
+
+            targetRows = Math.max( minRows, rowCount );
+        }
+
+        double throughput = rowCount * 1e9 / Math.max( elapsedNanos, 1 );
+
+        if ( throughput < lastThroughput * (1 - TOLERANCE) )
+        {
+            growing = !growing;
+        }
+
+        lastThroughput = throughput;
+
+        int target = (int) (growing ? targetRows * STEP_FACTOR : targetRows / STEP_FACTOR);
+
+        targetRows = Math.max( minRows, Math.min( maxRows, target ) );
+    }
+
+    @Override
+    public int getBufferCapacity()
+    {
+        return maxLength > 0 ? maxLength : DefaultFlushPolicy.DEFAULT_MAX_LENGTH;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether another row of the average length of the given batch
+     * would exceed the maximum statement length.
+     */
+    private boolean isLengthExceeded( int rowCount, int length )
+    {
+        return maxLength > 0 && rowCount > 0 && length + length / rowCount > maxLength;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the current target number of rows in a batch.
+     *
+     * @return the target number of rows.
+     */
+    public int getTargetRows()
+    {
+        return targetRows;
+    }
+}
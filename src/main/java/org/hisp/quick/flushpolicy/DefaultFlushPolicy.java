@@ -0,0 +1,128 @@
+package org.hisp.quick.flushpolicy;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.quick.FlushPolicy;
+
+/**
+ * Flush policy which flushes a batch when it reaches a maximum number of rows,
+ * a maximum statement length or a maximum age, whichever comes first. A limit
+ * of 0 means no limit. The length limit is checked against the length the
+ * statement would have after adding another row of average length, so that
+ * the statement stays within the limit and the buffer is not reallocated.
+ */
+public class DefaultFlushPolicy
+    implements FlushPolicy
+{
+    /**
+     * Number of characters in statement accepted by DBMS.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 200000;
+
+    private static final int DEFAULT_BUFFER_CAPACITY = 16384;
+
+    private final int maxRows;
+
+    private final int maxLength;
+
+    private final long maxAgeMillis;
+
+    /**
+     * Creates a policy which flushes at the default maximum statement length.
+     */
+    public DefaultFlushPolicy()
+    {
+        this( 0, DEFAULT_MAX_LENGTH, 0 );
+    }
+
+    /**
+     * @param maxRows the maximum number of rows in a batch, 0 for no limit.
+     * @param maxLength the maximum length in characters of a batch statement,
+     *        0 for no limit.
+     * @param maxAgeMillis the maximum time in milliseconds from the first row
+     *        is added to a batch until it is flushed, 0 for no limit. Checked
+     *        when objects are added.
+     */
+    public DefaultFlushPolicy( int maxRows, int maxLength, long maxAgeMillis )
+    {
+        this.maxRows = maxRows;
+        this.maxLength = maxLength;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    // -------------------------------------------------------------------------
+    // FlushPolicy implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isFlushRequired( int rowCount, int length, long ageMillis )
+    {
+        if ( maxRows > 0 && rowCount >= maxRows )
+        {
+            return true;
+        }
+
+        if ( maxLength > 0 && rowCount > 0 && length + length / rowCount > maxLength )
+        {
+            return true;
+        }
+
+        return maxAgeMillis > 0 && ageMillis >= maxAgeMillis;
+    }
+
+    @Override
+    public void onFlush( int rowCount, int length, long elapsedNanos )
+    {
+    }
+
+    @Override
+    public int getBufferCapacity()
+    {
+        return maxLength > 0 ? maxLength : DEFAULT_BUFFER_CAPACITY;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public int getMaxRows()
+    {
+        return maxRows;
+    }
+
+    public int getMaxLength()
+    {
+        return maxLength;
+    }
+
+    public long getMaxAgeMillis()
+    {
+        return maxAgeMillis;
+    }
+}
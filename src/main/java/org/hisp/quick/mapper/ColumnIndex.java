@@ -0,0 +1,113 @@
+package org.hisp.quick.mapper;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index of the columns of a result set by label, resolved once from the
+ * result set meta data, so that row mappers can read columns by index
+ * instead of having the driver resolve labels for every row. Labels are
+ * matched case-insensitively, and the first column with a label wins, as
+ * for label lookups in JDBC.
+ */
+public class ColumnIndex
+{
+    private final Map<String, Integer> indexes;
+
+    private ColumnIndex( Map<String, Integer> indexes )
+    {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Creates a column index from the given result set meta data.
+     *
+     * @param metaData the result set meta data.
+     * @return a column index.
+     * @throws SQLException if reading the meta data failed.
+     */
+    public static ColumnIndex of( ResultSetMetaData metaData )
+        throws SQLException
+    {
+        final int columnCount = metaData.getColumnCount();
+        final Map<String, Integer> indexes = new HashMap<>( columnCount * 2 );
+
+        for ( int i = 1; i <= columnCount; i++ )
+        {
+            indexes.putIfAbsent( metaData.getColumnLabel( i ).toLowerCase( Locale.ROOT ), i );
+        }
+
+        return new ColumnIndex( indexes );
+    }
+
+    /**
+     * Returns the index of the column with the given label.
+     *
+     * @param label the column label.
+     * @return the 1-based column index.
+     * @throws SQLException if no column has the given label.
+     */
+    public int indexOf( String label )
+        throws SQLException
+    {
+        final Integer index = indexes.get( label.toLowerCase( Locale.ROOT ) );
+
+        if ( index == null )
+        {
+            throw new SQLException( "Column not found in result set: " + label );
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the indexes of the columns with the given labels.
+     *
+     * @param labels the column labels.
+     * @return the 1-based column indexes, in label order.
+     * @throws SQLException if no column has one of the given labels.
+     */
+    public int[] indexesOf( String... labels )
+        throws SQLException
+    {
+        final int[] columns = new int[labels.length];
+
+        for ( int i = 0; i < labels.length; i++ )
+        {
+            columns[i] = indexOf( labels[i] );
+        }
+
+        return columns;
+    }
+}
@@ -0,0 +1,103 @@
+package org.hisp.quick.mapper;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Row mapper which reads columns by index. The indexes of the columns with
+ * the labels of {@link #getColumnLabels()} are resolved once per result set,
+ * when the first row is mapped, and passed to
+ * {@link #mapRow(ResultSet, int[])} for each row. {@link ObjectMapper} and
+ * batch handlers implementing this interface resolve the indexes
+ * automatically.
+ */
+public interface IndexedRowMapper<T>
+    extends RowMapper<T>
+{
+    /**
+     * Returns the labels of the columns read by this row mapper.
+     *
+     * @return the column labels.
+     */
+    String[] getColumnLabels();
+
+    /**
+     * Maps a row from a result set to an object.
+     *
+     * @param resultSet the ResultSet.
+     * @param columns the 1-based indexes of the columns with the labels of
+     *        {@link #getColumnLabels()}, in label order.
+     * @return an object.
+     * @throws SQLException if a database access error occurs.
+     */
+    T mapRow( ResultSet resultSet, int[] columns )
+        throws SQLException;
+
+    /**
+     * Maps a row from a result set to an object, resolving the column indexes
+     * for this row only.
+     */
+    @Override
+    default T mapRow( ResultSet resultSet )
+        throws SQLException
+    {
+        return mapRow( resultSet, ColumnIndex.of( resultSet.getMetaData() ).indexesOf( getColumnLabels() ) );
+    }
+
+    /**
+     * Returns a row mapper for the rows of a single result set, which for an
+     * indexed row mapper resolves the column indexes on the first row and
+     * reuses them for subsequent rows. Other row mappers are returned as is.
+     *
+     * @param <T> type.
+     * @param rowMapper the row mapper.
+     * @return a row mapper for a single result set.
+     */
+    static <T> RowMapper<T> resolving( RowMapper<T> rowMapper )
+    {
+        if ( !( rowMapper instanceof IndexedRowMapper ) )
+        {
+            return rowMapper;
+        }
+
+        final IndexedRowMapper<T> indexedRowMapper = (IndexedRowMapper<T>) rowMapper;
+        final int[][] plan = new int[1][];
+
+        return resultSet -> {
+            if ( plan[0] == null )
+            {
+                plan[0] = ColumnIndex.of( resultSet.getMetaData() ).indexesOf( indexedRowMapper.getColumnLabels() );
+            }
+
+            return indexedRowMapper.mapRow( resultSet, plan[0] );
+        };
+    }
+}
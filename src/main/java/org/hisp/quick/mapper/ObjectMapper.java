@@ -30,8 +30,14 @@ package org.hisp.quick.mapper;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Object mapper class.
@@ -52,7 +58,7 @@ public class ObjectMapper<T>
     {
         try
         {
-            return resultSet.next() ? rowMapper.mapRow( resultSet ) : null;
+            return resultSet.next() ? IndexedRowMapper.resolving( rowMapper ).mapRow( resultSet ) : null;
         }
         catch ( SQLException ex )
         {
@@ -62,7 +68,8 @@ public class ObjectMapper<T>
 
     /**
      * Retrieves a Collection from the argument ResultSet using the argument
-     * RowMapper.
+     * RowMapper. Objects are collected into a set, which drops duplicates and
+     * ordering. Use {@link #getList(ResultSet, RowMapper)} to retain them.
      *
      * @param resultSet the ResultSet.
      * @param rowMapper the RowMapper.
@@ -72,11 +79,13 @@ public class ObjectMapper<T>
     {
         try
         {
+            final RowMapper<T> mapper = IndexedRowMapper.resolving( rowMapper );
+
             Collection<T> objects = new HashSet<>();
 
             while ( resultSet.next() )
             {
-                objects.add( rowMapper.mapRow( resultSet ) );
+                objects.add( mapper.mapRow( resultSet ) );
             }
 
             return objects;
@@ -86,4 +95,110 @@ public class ObjectMapper<T>
             throw new RuntimeException( "Failed to get collection from result set", ex );
         }
     }
+
+    /**
+     * Retrieves a List from the argument ResultSet using the argument
+     * RowMapper, in result set order and including duplicates. The list is
+     * presized from the fetch size of the result set.
+     *
+     * @param resultSet the ResultSet.
+     * @param rowMapper the RowMapper.
+     * @return a List of objects.
+     */
+    public List<T> getList( ResultSet resultSet, RowMapper<T> rowMapper )
+    {
+        return getList( resultSet, rowMapper, getSizeHint( resultSet ) );
+    }
+
+    /**
+     * Retrieves a List from the argument ResultSet using the argument
+     * RowMapper, in result set order and including duplicates.
+     *
+     * @param resultSet the ResultSet.
+     * @param rowMapper the RowMapper.
+     * @param expectedSize the expected number of rows, used to presize the
+     *        list.
+     * @return a List of objects.
+     */
+    public List<T> getList( ResultSet resultSet, RowMapper<T> rowMapper, int expectedSize )
+    {
+        final List<T> objects = new ArrayList<>( Math.max( expectedSize, 0 ) );
+
+        forEach( resultSet, rowMapper, objects::add );
+
+        return objects;
+    }
+
+    /**
+     * Retrieves a Map from the argument ResultSet using the argument
+     * RowMapper, with objects keyed by the argument key mapper in result set
+     * order. Later objects replace earlier objects with the same key. The map
+     * is presized from the fetch size of the result set.
+     *
+     * @param <K> key type.
+     * @param resultSet the ResultSet.
+     * @param rowMapper the RowMapper.
+     * @param keyMapper the function which returns the key of an object.
+     * @return a Map of keys and objects.
+     */
+    public <K> Map<K, T> getMap( ResultSet resultSet, RowMapper<T> rowMapper, Function<? super T, K> keyMapper )
+    {
+        final Map<K, T> objects = new LinkedHashMap<>( (int) ( getSizeHint( resultSet ) / 0.75f ) + 1 );
+
+        forEach( resultSet, rowMapper, object -> objects.put( keyMapper.apply( object ), object ) );
+
+        return objects;
+    }
+
+    /**
+     * Passes each object mapped from the argument ResultSet using the argument
+     * RowMapper to the argument consumer, in result set order, without
+     * holding on to the objects.
+     *
+     * @param resultSet the ResultSet.
+     * @param rowMapper the RowMapper.
+     * @param consumer the consumer of objects.
+     * @return the number of objects.
+     */
+    public long forEach( ResultSet resultSet, RowMapper<T> rowMapper, Consumer<? super T> consumer )
+    {
+        try
+        {
+            final RowMapper<T> mapper = IndexedRowMapper.resolving( rowMapper );
+
+            long count = 0;
+
+            while ( resultSet.next() )
+            {
+                consumer.accept( mapper.mapRow( resultSet ) );
+
+                count++;
+            }
+
+            return count;
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( "Failed to map objects from result set", ex );
+        }
+    }
+
+    /**
+     * Returns the fetch size of the argument ResultSet as a hint of the number
+     * of rows, or 0 if not available.
+     *
+     * @param resultSet the ResultSet.
+     * @return the size hint.
+     */
+    private int getSizeHint( ResultSet resultSet )
+    {
+        try
+        {
+            return Math.max( resultSet.getFetchSize(), 0 );
+        }
+        catch ( SQLException ex )
+        {
+            return 0;
+        }
+    }
 }
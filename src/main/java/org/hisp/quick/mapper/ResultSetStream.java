@@ -0,0 +1,185 @@
+package org.hisp.quick.mapper;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily mapped stream of the rows of a query, which fetches rows from the
+ * database in batches of the fetch size as the stream is consumed. The query
+ * runs outside auto-commit mode, so that drivers such as the PostgreSQL
+ * driver use a server-side cursor instead of loading all rows into memory.
+ * The stream holds the statement open and must be closed, which restores the
+ * auto-commit mode of the connection.
+ */
+public class ResultSetStream<T>
+    extends Spliterators.AbstractSpliterator<T>
+{
+    private final Connection connection;
+
+    private final boolean autoCommit;
+
+    private final Statement statement;
+
+    private final ResultSet resultSet;
+
+    private final RowMapper<T> rowMapper;
+
+    private ResultSetStream( Connection connection, boolean autoCommit, Statement statement,
+        ResultSet resultSet, RowMapper<T> rowMapper )
+    {
+        super( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL );
+
+        this.connection = connection;
+        this.autoCommit = autoCommit;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.rowMapper = IndexedRowMapper.resolving( rowMapper );
+    }
+
+    /**
+     * Executes the given query and returns a stream of the rows mapped with
+     * the given row mapper.
+     *
+     * @param <T> type.
+     * @param connection the connection.
+     * @param sql the select SQL statement.
+     * @param fetchSize the number of rows to fetch from the database at a time.
+     * @param rowMapper the row mapper.
+     * @param onClose the action to run after the stream is closed, e.g.
+     *        closing the connection.
+     * @return a stream of mapped rows.
+     * @throws SQLException if the query failed.
+     */
+    public static <T> Stream<T> stream( Connection connection, String sql, int fetchSize,
+        RowMapper<T> rowMapper, Runnable onClose )
+        throws SQLException
+    {
+        final boolean autoCommit = connection.getAutoCommit();
+
+        Statement statement = null;
+
+        try
+        {
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( false );
+            }
+
+            statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+            statement.setFetchSize( fetchSize );
+
+            final ResultSetStream<T> spliterator = new ResultSetStream<>( connection, autoCommit,
+                statement, statement.executeQuery( sql ), rowMapper );
+
+            return StreamSupport.stream( spliterator, false ).onClose( () -> {
+                spliterator.close();
+                onClose.run();
+            } );
+        }
+        catch ( SQLException | RuntimeException ex )
+        {
+            close( statement );
+            restoreAutoCommit( connection, autoCommit );
+
+            throw ex;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Spliterator implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean tryAdvance( Consumer<? super T> action )
+    {
+        try
+        {
+            if ( !resultSet.next() )
+            {
+                return false;
+            }
+
+            action.accept( rowMapper.mapRow( resultSet ) );
+
+            return true;
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( "Failed to map row from result set", ex );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void close()
+    {
+        close( resultSet );
+        close( statement );
+        restoreAutoCommit( connection, autoCommit );
+    }
+
+    private static void close( AutoCloseable closeable )
+    {
+        if ( closeable != null )
+        {
+            try
+            {
+                closeable.close();
+            }
+            catch ( Exception ex )
+            {
+            }
+        }
+    }
+
+    private static void restoreAutoCommit( Connection connection, boolean autoCommit )
+    {
+        if ( autoCommit )
+        {
+            try
+            {
+                connection.setAutoCommit( true );
+            }
+            catch ( SQLException ex )
+            {
+            }
+        }
+    }
+}
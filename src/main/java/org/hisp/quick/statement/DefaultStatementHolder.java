@@ -29,26 +29,54 @@ package org.hisp.quick.statement;
  */
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.hisp.quick.StatementHolder;
+import org.hisp.quick.mapper.ResultSetStream;
+import org.hisp.quick.mapper.RowMapper;
 
 /**
- * Class for holding JDBC statements.
+ * Class for holding JDBC statements. Prepared statements of parameterized
+ * queries are kept in a least recently used cache keyed by SQL statement,
+ * so that repeated queries reuse the statement and its server-side plan.
  *
  * @author Lars Helge Overland
  */
 public class DefaultStatementHolder
     implements StatementHolder
 {
+    public static final int DEFAULT_MAX_CACHED_STATEMENTS = 32;
+
     private Connection connection;
 
     private boolean pooled;
 
     private Statement statement;
 
+    private int maxCachedStatements = DEFAULT_MAX_CACHED_STATEMENTS;
+
+    private final Map<String, PreparedStatement> preparedStatements = new LinkedHashMap<String, PreparedStatement>( 16, 0.75f, true )
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, PreparedStatement> eldest )
+        {
+            if ( size() > maxCachedStatements )
+            {
+                closeStatement( eldest.getValue() );
+
+                return true;
+            }
+
+            return false;
+        }
+    };
+
     public DefaultStatementHolder( Connection connection )
     {
         this.connection = connection;
@@ -79,6 +107,18 @@ public class DefaultStatementHolder
         return pooled;
     }
 
+    /**
+     * Sets the maximum number of prepared statements of parameterized queries
+     * to cache. The least recently used statement is closed when the maximum
+     * is exceeded. Defaults to 32. A value of 0 disables caching.
+     *
+     * @param maxCachedStatements the maximum number of cached statements.
+     */
+    public void setMaxCachedStatements( int maxCachedStatements )
+    {
+        this.maxCachedStatements = maxCachedStatements;
+    }
+
     @Override
     public int executeUpdate( final String sql )
     {
@@ -149,6 +189,24 @@ public class DefaultStatementHolder
         }
     }
 
+    @Override
+    public Integer queryForInteger( final String sql, final Object... params )
+    {
+        return query( sql, params, resultSet -> resultSet.getInt( 1 ) );
+    }
+
+    @Override
+    public Double queryForDouble( final String sql, final Object... params )
+    {
+        return query( sql, params, resultSet -> resultSet.getDouble( 1 ) );
+    }
+
+    @Override
+    public String queryForString( final String sql, final Object... params )
+    {
+        return query( sql, params, resultSet -> resultSet.getString( 1 ) );
+    }
+
     @Override
     public String queryForString( final String sql )
     {
@@ -170,6 +228,21 @@ public class DefaultStatementHolder
         }
     }
 
+    @Override
+    public <T> Stream<T> stream( final String sql, final RowMapper<T> rowMapper, final int fetchSize )
+    {
+        try
+        {
+            return ResultSetStream.stream( connection, sql, fetchSize, rowMapper, this::close );
+        }
+        catch ( SQLException ex )
+        {
+            forceClose();
+
+            throw new RuntimeException( ex );
+        }
+    }
+
     @Override
     public int update( final String sql )
     {
@@ -189,6 +262,34 @@ public class DefaultStatementHolder
         }
     }
 
+    @Override
+    public int update( final String sql, final Object... params )
+    {
+        try
+        {
+            final PreparedStatement preparedStatement = prepareStatement( sql, params );
+
+            try
+            {
+                return preparedStatement.executeUpdate();
+            }
+            finally
+            {
+                releaseStatement( preparedStatement );
+            }
+        }
+        catch ( SQLException ex )
+        {
+            forceClose();
+
+            throw new RuntimeException( ex );
+        }
+        finally
+        {
+            close();
+        }
+    }
+
     @Override
     public void close()
     {
@@ -201,6 +302,13 @@ public class DefaultStatementHolder
     @Override
     public void forceClose()
     {
+        for ( PreparedStatement preparedStatement : preparedStatements.values() )
+        {
+            closeStatement( preparedStatement );
+        }
+
+        preparedStatements.clear();
+
         if ( statement != null )
         {
             try
@@ -224,6 +332,108 @@ public class DefaultStatementHolder
         }
     }
 
+    /**
+     * Executes the given parameterized query and reads the first row of the
+     * result with the given reader.
+     *
+     * @param sql the SQL statement with placeholders.
+     * @param params the parameters.
+     * @param reader the reader of the first row.
+     * @return the value read from the first row, or null if no rows.
+     */
+    private <R> R query( final String sql, final Object[] params, final RowReader<R> reader )
+    {
+        try
+        {
+            final PreparedStatement preparedStatement = prepareStatement( sql, params );
+
+            try ( ResultSet resultSet = preparedStatement.executeQuery() )
+            {
+                return resultSet.next() ? reader.read( resultSet ) : null;
+            }
+            finally
+            {
+                releaseStatement( preparedStatement );
+            }
+        }
+        catch ( SQLException ex )
+        {
+            forceClose();
+
+            throw new RuntimeException( ex );
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    /**
+     * Returns the cached prepared statement for the given SQL statement, or
+     * prepares and caches a new one, with the given parameters bound.
+     *
+     * @param sql the SQL statement with placeholders.
+     * @param params the parameters.
+     * @return a prepared statement.
+     * @throws SQLException if preparing the statement or binding failed.
+     */
+    private PreparedStatement prepareStatement( final String sql, final Object[] params )
+        throws SQLException
+    {
+        PreparedStatement preparedStatement = preparedStatements.get( sql );
+
+        if ( preparedStatement == null )
+        {
+            preparedStatement = connection.prepareStatement( sql );
+
+            if ( maxCachedStatements > 0 )
+            {
+                preparedStatements.put( sql, preparedStatement );
+            }
+        }
+        else
+        {
+            preparedStatement.clearParameters();
+        }
+
+        ParameterBinder.bind( preparedStatement, params );
+
+        return preparedStatement;
+    }
+
+    /**
+     * Closes the given prepared statement if caching is disabled.
+     *
+     * @param preparedStatement the prepared statement.
+     */
+    private void releaseStatement( final PreparedStatement preparedStatement )
+    {
+        if ( maxCachedStatements <= 0 )
+        {
+            closeStatement( preparedStatement );
+        }
+    }
+
+    private static void closeStatement( final Statement statement )
+    {
+        try
+        {
+            statement.close();
+        }
+        catch ( SQLException ex )
+        {
+        }
+    }
+
+    /**
+     * Reads a value from the current row of a result set.
+     */
+    private interface RowReader<R>
+    {
+        R read( ResultSet resultSet )
+            throws SQLException;
+    }
+
     private Statement createStatement()
     {
         try
@@ -45,6 +45,8 @@ public class JdbcStatementManager
 {
     private ThreadLocal<StatementHolder> holderTag = new ThreadLocal<>();
 
+    private int maxCachedStatements = DefaultStatementHolder.DEFAULT_MAX_CACHED_STATEMENTS;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -56,6 +58,17 @@ public class JdbcStatementManager
         this.jdbcConfiguration = jdbcConfiguration;
     }
 
+    /**
+     * Sets the maximum number of prepared statements of parameterized queries
+     * cached by the holder of the current thread. Defaults to 32.
+     *
+     * @param maxCachedStatements the maximum number of cached statements.
+     */
+    public void setMaxCachedStatements( int maxCachedStatements )
+    {
+        this.maxCachedStatements = maxCachedStatements;
+    }
+
     // -------------------------------------------------------------------------
     // StatementManager implementation
     // -------------------------------------------------------------------------
@@ -65,7 +78,8 @@ public class JdbcStatementManager
     {
         Connection connection = getConnection();
 
-        StatementHolder holder = new DefaultStatementHolder( connection, true );
+        DefaultStatementHolder holder = new DefaultStatementHolder( connection, true );
+        holder.setMaxCachedStatements( maxCachedStatements );
 
         holderTag.set( holder );
     }
@@ -0,0 +1,164 @@
+package org.hisp.quick.statement;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Class which binds values to the parameters of a prepared statement using
+ * the typed setter matching the class of each value.
+ */
+public class ParameterBinder
+{
+    /**
+     * Binds the given values to the parameters of the given statement, where
+     * the first value is bound to the first parameter.
+     *
+     * @param statement the prepared statement.
+     * @param values the values to bind.
+     * @throws SQLException if a database access error occurs.
+     */
+    public static void bind( PreparedStatement statement, List<Object> values )
+        throws SQLException
+    {
+        for ( int i = 0; i < values.size(); i++ )
+        {
+            bind( statement, i + 1, values.get( i ) );
+        }
+    }
+
+    /**
+     * Binds the given values to the parameters of the given statement, where
+     * the first value is bound to the first parameter.
+     *
+     * @param statement the prepared statement.
+     * @param values the values to bind.
+     * @throws SQLException if a database access error occurs.
+     */
+    public static void bind( PreparedStatement statement, Object... values )
+        throws SQLException
+    {
+        for ( int i = 0; i < values.length; i++ )
+        {
+            bind( statement, i + 1, values[i] );
+        }
+    }
+
+    /**
+     * Binds the given value to the parameter at the given index. Dates which
+     * are not JDBC types are bound as SQL dates, in line with how they are
+     * encoded as literals by the statement builders.
+     *
+     * @param statement the prepared statement.
+     * @param index the parameter index, starting at 1.
+     * @param value the value to bind, can be null.
+     * @throws SQLException if a database access error occurs.
+     */
+    public static void bind( PreparedStatement statement, int index, Object value )
+        throws SQLException
+    {
+        if ( value == null )
+        {
+            statement.setNull( index, Types.NULL );
+        }
+        else if ( value instanceof String )
+        {
+            statement.setString( index, (String) value );
+        }
+        else if ( value instanceof Integer )
+        {
+            statement.setInt( index, (Integer) value );
+        }
+        else if ( value instanceof Long )
+        {
+            statement.setLong( index, (Long) value );
+        }
+        else if ( value instanceof Double )
+        {
+            statement.setDouble( index, (Double) value );
+        }
+        else if ( value instanceof Boolean )
+        {
+            statement.setBoolean( index, (Boolean) value );
+        }
+        else if ( value instanceof java.sql.Date )
+        {
+            statement.setDate( index, (java.sql.Date) value );
+        }
+        else if ( value instanceof Timestamp )
+        {
+            statement.setTimestamp( index, (Timestamp) value );
+        }
+        else if ( value instanceof Time )
+        {
+            statement.setTime( index, (Time) value );
+        }
+        else if ( value instanceof Date )
+        {
+            statement.setDate( index, new java.sql.Date( ((Date) value).getTime() ) );
+        }
+        else
+        {
+            statement.setObject( index, value );
+        }
+    }
+
+    /**
+     * Binds the day of the given date in the default time zone to the
+     * parameter at the given index as an SQL date, dropping the time of
+     * timestamps. This matches the 'yyyy-MM-dd' literals written by the
+     * statement builders and the copy writer.
+     *
+     * @param statement the prepared statement.
+     * @param index the parameter index, starting at 1.
+     * @param value the date to bind, can be null.
+     * @throws SQLException if a database access error occurs.
+     */
+    public static void bindDate( PreparedStatement statement, int index, Date value )
+        throws SQLException
+    {
+        if ( value == null )
+        {
+            statement.setNull( index, Types.DATE );
+        }
+        else
+        {
+            statement.setDate( index, java.sql.Date.valueOf(
+                Instant.ofEpochMilli( value.getTime() ).atZone( ZoneId.systemDefault() ).toLocalDate() ) );
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.hisp.quick.statement;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Date;
+
+import org.hisp.quick.ValueSink;
+
+/**
+ * Value sink which binds values to the parameters of a prepared statement,
+ * starting at the first parameter. Dates, including timestamps, are bound as
+ * the SQL date of their day, as they are written in the other insert modes.
+ */
+public class PreparedStatementValueSink
+    implements ValueSink
+{
+    private final PreparedStatement statement;
+
+    private int index = 1;
+
+    public PreparedStatementValueSink( PreparedStatement statement )
+    {
+        this.statement = statement;
+    }
+
+    /**
+     * Resets the sink so that the next value is bound to the first parameter.
+     */
+    public void reset()
+    {
+        index = 1;
+    }
+
+    // -------------------------------------------------------------------------
+    // ValueSink implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void putInt( int value )
+        throws SQLException
+    {
+        statement.setInt( index++, value );
+    }
+
+    @Override
+    public void putLong( long value )
+        throws SQLException
+    {
+        statement.setLong( index++, value );
+    }
+
+    @Override
+    public void putDouble( double value )
+        throws SQLException
+    {
+        statement.setDouble( index++, value );
+    }
+
+    @Override
+    public void putBoolean( boolean value )
+        throws SQLException
+    {
+        statement.setBoolean( index++, value );
+    }
+
+    @Override
+    public void putString( String value )
+        throws SQLException
+    {
+        statement.setString( index++, value );
+    }
+
+    @Override
+    public void putDate( Date value )
+        throws SQLException
+    {
+        ParameterBinder.bindDate( statement, index++, value );
+    }
+
+    @Override
+    public void putNull()
+        throws SQLException
+    {
+        statement.setNull( index++, Types.NULL );
+    }
+
+    @Override
+    public void putObject( Object value )
+        throws SQLException
+    {
+        if ( value instanceof Date )
+        {
+            ParameterBinder.bindDate( statement, index++, (Date) value );
+        }
+        else
+        {
+            ParameterBinder.bind( statement, index++, value );
+        }
+    }
+}
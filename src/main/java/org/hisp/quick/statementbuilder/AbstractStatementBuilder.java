@@ -28,13 +28,20 @@ package org.hisp.quick.statementbuilder;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.hisp.quick.ConflictMode;
 import org.hisp.quick.StatementBuilder;
+import org.hisp.quick.ValueSink;
 import org.hisp.quick.batchhandler.AbstractBatchHandler;
 
 /**
@@ -50,6 +57,8 @@ public abstract class AbstractStatementBuilder<T>
 
     protected static final String QUOTE = "'";
 
+    protected static final char QUOTE_CHAR = '\'';
+
     protected static final String NULL = "null";
 
     protected static final String TRUE = "true";
@@ -62,119 +71,680 @@ public abstract class AbstractStatementBuilder<T>
 
     protected static final String BRACKET_END = ")";
 
+    protected static final String PLACEHOLDER = "?";
+
+    private static final int DEFAULT_MAX_BULK_SIZE = 1000;
+
+    private final Map<List<Object>, StatementTemplates> compiledTemplates = new HashMap<>();
+
+    private StatementTemplates templates;
+
+    private Calendar calendar;
+
+    private static final ClassValue<LegacyHooks> LEGACY_HOOKS = new ClassValue<LegacyHooks>()
+    {
+        @Override
+        protected LegacyHooks computeValue( Class<?> type )
+        {
+            return new LegacyHooks( type );
+        }
+    };
+
+    private final LegacyHooks legacyHooks;
+
+    private final LiteralValueSink literalSink = new LiteralValueSink();
+
     public AbstractStatementBuilder( AbstractBatchHandler<T> batchHandler )
     {
         this.batchHandler = batchHandler;
+        this.legacyHooks = LEGACY_HOOKS.get( getClass() );
     }
 
     // -------------------------------------------------------------------------
     // StatementBuilder implementation
     // -------------------------------------------------------------------------
 
+    @Override
+    public String getInsertStatementOpening()
+    {
+        return getTemplates().getInsertStatementOpening();
+    }
+
+    @Override
+    public String getInsertStatementClosing()
+    {
+        return getTemplates().getInsertStatementClosing();
+    }
+
     @Override
     public String getNoColumnInsertStatementOpening()
     {
-        return "insert into " + batchHandler.getTableName() + " values ";
+        return getTemplates().getNoColumnInsertStatementOpening();
+    }
+
+    @Override
+    public String getInsertStatementValues( T object )
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        appendValues( object, builder );
+
+        return builder.toString();
+    }
+
+    /**
+     * Appends the value list for an insert SQL statement to the given builder.
+     * Appends the value list created by {@link #getInsertStatementValues}
+     * instead if a subclass overrides it.
+     */
+    @Override
+    public void appendInsertStatementValues( T object, StringBuilder builder )
+    {
+        if ( legacyHooks.insertStatementValues )
+        {
+            builder.append( getInsertStatementValues( object ) );
+
+            return;
+        }
+
+        appendValues( object, builder );
+    }
+
+    @Override
+    public String getPreparedInsertStatement()
+    {
+        return getTemplates().getPreparedInsertStatement();
+    }
+
+    /**
+     * Encodes the insert values of the given object directly into the given
+     * builder.
+     *
+     * @param object the object.
+     * @param builder the builder to append to.
+     */
+    private void appendValues( T object, StringBuilder builder )
+    {
+        String autoIncrementValue = isAllocatedIds() ? null : getAutoIncrementValue();
+
+        builder.append( BRACKET_START );
+
+        if ( autoIncrementValue != null )
+        {
+            builder.append( autoIncrementValue ).append( SEPARATOR );
+        }
+
+        final int valuesStart = builder.length();
+
+        literalSink.builder = builder;
+
+        try
+        {
+            batchHandler.writeInsertValues( object, literalSink );
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( "Failed to write values", ex );
+        }
+
+        if ( builder.length() > valuesStart || autoIncrementValue != null )
+        {
+            builder.setLength( builder.length() - 1 );
+        }
+
+        builder.append( BRACKET_END ).append( SEPARATOR );
     }
 
     @Override
     public String getSelectStatement( T arg )
     {
-        return new StringBuffer( "select * from " )
-            .append( batchHandler.getTableName() )
-            .append( " where " )
-            .append( getUniquenessClause( arg ) )
-            .append( ";" ).toString();
+        return fill( getTemplates().getSelectStatement(), batchHandler.getUniqueValues( arg ), null );
+    }
+
+    @Override
+    public String getBulkSelectStatement( List<T> args )
+    {
+        final StringBuilder builder = new StringBuilder( "select * from " )
+            .append( batchHandler.getTableName() ).append( " where " );
+
+        appendBulkUniquenessClause( args, builder );
+
+        return builder.append( ";" ).toString();
+    }
+
+    @Override
+    public String getStreamStatement( String whereClause )
+    {
+        return "select * from " + batchHandler.getTableName() +
+            ( whereClause != null ? " where " + whereClause : "" ) + ";";
     }
 
     @Override
     public String getUpdateStatement( T object )
     {
-        List<String> columns = batchHandler.getColumns();
-        List<Object> values = batchHandler.getValues( object );
-        List<String> identifierColums = batchHandler.getIdentifierColumns();
-        List<Object> identifierValues = batchHandler.getIdentifierValues( object );
+        return fill( getTemplates().getUpdateStatement(),
+            batchHandler.getValues( object ), batchHandler.getIdentifierValues( object ) );
+    }
 
-        final StringBuffer buffer = new StringBuffer( "update " + batchHandler.getTableName() + " set " );
+    /**
+     * Creates a bulk update statement as a MERGE statement with a VALUES
+     * source table.
+     */
+    @Override
+    public String getBulkUpdateStatement( List<T> objects )
+    {
+        final StringBuilder builder = new StringBuilder( "merge into " )
+            .append( batchHandler.getTableName() ).append( " t using (values " );
 
-        for ( int i = 0; i < columns.size(); i++ )
+        for ( T object : objects )
         {
-            buffer.append( columns.get( i ) + "=" + defaultEncode( values.get( i ) ) );
+            builder.append( BRACKET_START );
+            appendBulkUpdateRow( object, builder );
+            builder.append( BRACKET_END ).append( SEPARATOR );
+        }
+
+        builder.setLength( builder.length() - 1 );
+        builder.append( ") v " ).append( getBulkUpdateAliases() ).append( " on (" );
+        appendBulkUpdateCondition( builder );
+        builder.append( ") when matched then update set " );
+        appendBulkUpdateAssignments( "", builder );
+
+        return builder.append( ";" ).toString();
+    }
 
-            if ( i + 1 < columns.size() )
+    @Override
+    public String getDeleteStatement( T object )
+    {
+        return fill( getTemplates().getDeleteStatement(), batchHandler.getIdentifierValues( object ), null );
+    }
+
+    @Override
+    public String getBulkDeleteStatement( List<T> objects )
+    {
+        final StringBuilder builder = new StringBuilder( "delete from " )
+            .append( batchHandler.getTableName() ).append( " where " );
+
+        appendRowValueInClause( batchHandler.getIdentifierColumns(), objects, true, builder );
+
+        return builder.append( ";" ).toString();
+    }
+
+    @Override
+    public String getUniquenessStatement( T object )
+    {
+        return fill( getTemplates().getUniquenessStatement(), batchHandler.getUniqueValues( object ), null );
+    }
+
+    @Override
+    public String getBulkUniquenessStatement( List<T> objects )
+    {
+        final StringBuilder builder = new StringBuilder( "select " )
+            .append( String.join( SEPARATOR, batchHandler.getUniqueColumns() ) )
+            .append( " from " ).append( batchHandler.getTableName() ).append( " where " );
+
+        appendBulkUniquenessClause( objects, builder );
+
+        return builder.append( ";" ).toString();
+    }
+
+    @Override
+    public String getUniqueValuesStatement()
+    {
+        return "select " + String.join( SEPARATOR, batchHandler.getUniqueColumns() ) +
+            " from " + batchHandler.getTableName() + ";";
+    }
+
+    @Override
+    public String getUniquenessClause( T object )
+    {
+        return fill( getTemplates().getUniquenessClause(), batchHandler.getUniqueValues( object ), null );
+    }
+
+    @Override
+    public String getSequenceBlockStatement( int size )
+    {
+        return null;
+    }
+
+    @Override
+    public int getMaxBulkSize()
+    {
+        return DEFAULT_MAX_BULK_SIZE;
+    }
+
+    /**
+     * Appends a clause matching rows with the unique values of any of the
+     * given objects to the given builder. For inclusive unique columns, the
+     * clause is a row value IN predicate over all unique columns. For
+     * exclusive unique columns, the clause is a disjunction of IN predicates,
+     * one per unique column.
+     *
+     * @param objects the objects, must not be empty.
+     * @param builder the builder to append to.
+     */
+    protected final void appendBulkUniquenessClause( List<T> objects, StringBuilder builder )
+    {
+        final List<String> columns = batchHandler.getUniqueColumns();
+
+        if ( columns.size() == 1 || batchHandler.isInclusiveUniqueColumns() )
+        {
+            appendRowValueInClause( columns, objects, false, builder );
+        }
+        else
+        {
+            final List<List<Object>> uniqueValues = new ArrayList<>( objects.size() );
+
+            for ( T object : objects )
             {
-                buffer.append( SEPARATOR );
+                uniqueValues.add( batchHandler.getUniqueValues( object ) );
             }
+
+            builder.append( BRACKET_START );
+
+            for ( int i = 0; i < columns.size(); i++ )
+            {
+                builder.append( i > 0 ? " or " : "" ).append( columns.get( i ) ).append( " in (" );
+
+                for ( List<Object> values : uniqueValues )
+                {
+                    appendEncoded( values.get( i ), builder );
+
+                    builder.append( SEPARATOR );
+                }
+
+                builder.setLength( builder.length() - 1 );
+                builder.append( BRACKET_END );
+            }
+
+            builder.append( BRACKET_END );
         }
+    }
 
-        buffer.append( " where " );
+    /**
+     * Appends an IN predicate matching rows with the unique or identifier
+     * values of any of the given objects to the given builder. For multiple
+     * columns, the predicate is a row value IN predicate.
+     *
+     * @param columns the unique or identifier columns.
+     * @param objects the objects, must not be empty.
+     * @param identifiers whether to match identifier or unique values.
+     * @param builder the builder to append to.
+     */
+    private void appendRowValueInClause( List<String> columns, List<T> objects, boolean identifiers, StringBuilder builder )
+    {
+        final boolean rowValue = columns.size() > 1;
 
-        for ( int i = 0; i < identifierColums.size(); i++ )
+        if ( rowValue )
+        {
+            builder.append( BRACKET_START ).append( String.join( SEPARATOR, columns ) ).append( BRACKET_END );
+        }
+        else
         {
-            buffer.append( identifierColums.get( i ) + "=" + defaultEncode( identifierValues.get( i ) ) );
+            builder.append( columns.get( 0 ) );
+        }
+
+        builder.append( " in (" );
 
-            if ( (i + 1) < identifierColums.size() )
+        literalSink.builder = builder;
+
+        for ( T object : objects )
+        {
+            builder.append( rowValue ? BRACKET_START : "" );
+
+            try
             {
-                buffer.append( " and " );
+                if ( identifiers )
+                {
+                    batchHandler.writeIdentifierValues( object, literalSink );
+                }
+                else
+                {
+                    batchHandler.writeUniqueValues( object, literalSink );
+                }
             }
+            catch ( SQLException ex )
+            {
+                throw new RuntimeException( "Failed to write values", ex );
+            }
+
+            builder.setLength( builder.length() - 1 );
+            builder.append( rowValue ? BRACKET_END : "" ).append( SEPARATOR );
         }
 
-        return buffer.append( ";" ).toString();
+        builder.setLength( builder.length() - 1 );
+        builder.append( BRACKET_END );
     }
 
-    @Override
-    public String getDeleteStatement( T object )
+    /**
+     * Appends the values followed by the identifier values of the given object
+     * to the given builder, separated by commas, forming a row of the source
+     * table of a bulk update statement.
+     *
+     * @param object the object.
+     * @param builder the builder to append to.
+     */
+    protected final void appendBulkUpdateRow( T object, StringBuilder builder )
+    {
+        literalSink.builder = builder;
+
+        try
+        {
+            batchHandler.writeValues( object, literalSink );
+            batchHandler.writeIdentifierValues( object, literalSink );
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( "Failed to write values", ex );
+        }
+
+        builder.setLength( builder.length() - 1 );
+    }
+
+    /**
+     * Returns the column alias list of the source table of a bulk update
+     * statement, where the columns of the batch handler are named c1 to cN,
+     * followed by the identifier columns.
+     *
+     * @return the column alias list.
+     */
+    protected final String getBulkUpdateAliases()
     {
-        List<String> identifierColums = batchHandler.getIdentifierColumns();
-        List<Object> identifierValues = batchHandler.getIdentifierValues( object );
+        final int count = batchHandler.getColumns().size() + batchHandler.getIdentifierColumns().size();
 
-        final StringBuffer buffer = new StringBuffer().append( "delete from " ).append( batchHandler.getTableName() )
-            .append( " where " );
+        final StringBuilder builder = new StringBuilder( BRACKET_START );
 
-        for ( int i = 0; i < identifierColums.size(); i++ )
+        for ( int i = 1; i <= count; i++ )
         {
-            buffer.append( identifierColums.get( i ) + "=" + defaultEncode( identifierValues.get( i ) ) );
+            builder.append( i > 1 ? SEPARATOR : "" ).append( 'c' ).append( i );
+        }
+
+        return builder.append( BRACKET_END ).toString();
+    }
+
+    /**
+     * Appends the condition joining the target table t to the identifier
+     * columns of the source table v of a bulk update statement.
+     *
+     * @param builder the builder to append to.
+     */
+    protected final void appendBulkUpdateCondition( StringBuilder builder )
+    {
+        final List<String> identifiers = batchHandler.getIdentifierColumns();
+        final int offset = batchHandler.getColumns().size();
+
+        for ( int i = 0; i < identifiers.size(); i++ )
+        {
+            builder.append( i > 0 ? " and " : "" ).append( "t." ).append( identifiers.get( i ) )
+                .append( "=v.c" ).append( offset + i + 1 );
+        }
+    }
 
-            if ( (i + 1) < identifierColums.size() )
+    /**
+     * Appends the assignments of the columns of the source table v of a bulk
+     * update statement to the columns of the target table. Identifier columns
+     * are not assigned, as the rows are matched on them.
+     *
+     * @param qualifier the qualifier of the assigned columns, may be empty.
+     * @param builder the builder to append to.
+     */
+    protected final void appendBulkUpdateAssignments( String qualifier, StringBuilder builder )
+    {
+        final List<String> columns = batchHandler.getColumns();
+        final List<String> identifiers = batchHandler.getIdentifierColumns();
+
+        final int start = builder.length();
+
+        for ( int i = 0; i < columns.size(); i++ )
+        {
+            if ( !identifiers.contains( columns.get( i ) ) )
             {
-                buffer.append( " and " );
+                builder.append( builder.length() > start ? SEPARATOR : "" ).append( qualifier )
+                    .append( columns.get( i ) ).append( "=v.c" ).append( i + 1 );
             }
         }
+    }
+
+    // -------------------------------------------------------------------------
+    // Templates
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the statement templates for the batch handler of this builder.
+     * Templates are compiled on first use and cached by this builder per
+     * conflict mode and whether ids are allocated, the settings of the batch
+     * handler they depend on. Templates are not shared between builders, as
+     * the columns of batch handlers of the same class can differ, e.g. for
+     * annotated batch handlers of different entity classes.
+     *
+     * @return the statement templates.
+     */
+    protected final StatementTemplates getTemplates()
+    {
+        if ( templates == null )
+        {
+            List<Object> key = Arrays.asList( batchHandler.getConflictMode(), isAllocatedIds() );
+
+            templates = compiledTemplates.computeIfAbsent( key, k -> compileTemplates() );
+        }
 
-        return buffer.append( ";" ).toString();
+        return templates;
     }
 
-    @Override
-    public String getUniquenessStatement( T object )
+    /**
+     * Discards the current statement templates of this builder, so that the
+     * templates matching the current settings of the batch handler are looked
+     * up on next use. Invoked when the batch handler is initialized.
+     */
+    public final void resetTemplates()
     {
-        return new StringBuffer( "select 1 from " )
-            .append( batchHandler.getTableName() ).append( " where " )
-            .append( getUniquenessClause( object ) )
-            .append( ";" ).toString();
+        templates = null;
     }
 
-    @Override
-    public String getUniquenessClause( T object )
+    /**
+     * Compiles the statement templates for the batch handler of this builder.
+     *
+     * @return the statement templates.
+     */
+    protected StatementTemplates compileTemplates()
+    {
+        final String tableName = batchHandler.getTableName();
+        final String autoIncrementValue = getAutoIncrementValue();
+        final List<String> columns = batchHandler.getColumns();
+
+        final ConflictMode conflictMode = batchHandler.getConflictMode();
+        final StringBuilder row = new StringBuilder( BRACKET_START );
+
+        if ( autoIncrementValue != null )
+        {
+            row.append( isAllocatedIds() ? PLACEHOLDER : autoIncrementValue ).append( SEPARATOR );
+        }
+
+        for ( int i = 0; i < columns.size(); i++ )
+        {
+            row.append( PLACEHOLDER ).append( SEPARATOR );
+        }
+
+        if ( columns.size() > 0 || autoIncrementValue != null )
+        {
+            row.setLength( row.length() - 1 );
+        }
+
+        final String insertOpening = createInsertStatementOpening( conflictMode );
+        final String insertClosing = createInsertStatementClosing( conflictMode );
+        final String preparedInsert = insertOpening + row.append( BRACKET_END ) + insertClosing;
+
+        final StatementTemplates.TemplateBuilder update = new StatementTemplates.TemplateBuilder()
+            .append( "update " + tableName + " set " );
+
+        for ( int i = 0; i < columns.size(); i++ )
+        {
+            update.append( i > 0 ? SEPARATOR : "" ).append( columns.get( i ) + "=" ).value();
+        }
+
+        update.append( " where " );
+        appendColumns( update, batchHandler.getIdentifierColumns(), " and " );
+        update.append( ";" );
+
+        final StatementTemplates.TemplateBuilder delete = new StatementTemplates.TemplateBuilder()
+            .append( "delete from " + tableName + " where " );
+        appendColumns( delete, batchHandler.getIdentifierColumns(), " and " );
+        delete.append( ";" );
+
+        return new StatementTemplates( insertOpening,
+            insertClosing,
+            "insert into " + tableName + " values ",
+            preparedInsert,
+            getUniquenessTemplate( "select * from " + tableName + " where ", ";" ),
+            update.build(),
+            delete.build(),
+            getUniquenessTemplate( "select 1 from " + tableName + " where ", ";" ),
+            getUniquenessTemplate( "", "" ) );
+    }
+
+    /**
+     * Returns the columns of insert statements, which are the columns of the
+     * batch handler preceded by the auto-increment column if its value is
+     * part of insert statements.
+     *
+     * @return the insert columns.
+     */
+    protected final List<String> getInsertColumns()
+    {
+        final List<String> columns = new ArrayList<>();
+
+        if ( getAutoIncrementValue() != null )
+        {
+            columns.add( batchHandler.getAutoIncrementColumn() );
+        }
+
+        columns.addAll( batchHandler.getColumns() );
+
+        return columns;
+    }
+
+    /**
+     * Returns the insert columns which are updated on conflict, which are the
+     * insert columns except the unique and auto-increment columns.
+     *
+     * @return the columns to update on conflict.
+     */
+    protected final List<String> getConflictUpdateColumns()
+    {
+        final List<String> columns = new ArrayList<>( batchHandler.getColumns() );
+
+        columns.removeAll( batchHandler.getUniqueColumns() );
+        columns.remove( batchHandler.getAutoIncrementColumn() );
+
+        return columns;
+    }
+
+    /**
+     * Returns a plain insert statement opening, with the insert columns.
+     *
+     * @return an insert statement opening.
+     */
+    protected final String getInsertIntoOpening()
     {
-        List<String> uniqueColumns = batchHandler.getUniqueColumns();
-        List<Object> uniqueValues = batchHandler.getUniqueValues( object );
-        boolean inclusive = batchHandler.isInclusiveUniqueColumns();
+        return "insert into " + batchHandler.getTableName() + " (" +
+            String.join( SEPARATOR, getInsertColumns() ) + BRACKET_END + " values ";
+    }
+
+    /**
+     * Returns a MERGE statement closing following a VALUES list of rows with
+     * the insert columns, which inserts rows not matching existing rows on the
+     * unique columns, and updates existing rows if requested.
+     *
+     * @param update whether to update matching rows.
+     * @return a MERGE statement closing.
+     */
+    protected final String getMergeClosing( boolean update )
+    {
+        final List<String> columns = getInsertColumns();
+        final String operator = batchHandler.isInclusiveUniqueColumns() ? " and " : " or ";
+
+        final StringBuilder builder = new StringBuilder( ") v (" );
+
+        for ( int i = 1; i <= columns.size(); i++ )
+        {
+            builder.append( i > 1 ? SEPARATOR : "" ).append( 'c' ).append( i );
+        }
 
-        final String operator = inclusive ? " and " : " or ";
+        builder.append( ") on (" );
 
-        final StringBuffer buffer = new StringBuffer();
+        final List<String> uniqueColumns = batchHandler.getUniqueColumns();
 
         for ( int i = 0; i < uniqueColumns.size(); i++ )
         {
-            buffer.append( uniqueColumns.get( i ) + "=" + defaultEncode( uniqueValues.get( i ) ) );
+            builder.append( i > 0 ? operator : "" ).append( "t." ).append( uniqueColumns.get( i ) )
+                .append( "=v.c" ).append( columns.indexOf( uniqueColumns.get( i ) ) + 1 );
+        }
+
+        builder.append( BRACKET_END );
+
+        final List<String> updateColumns = getConflictUpdateColumns();
+
+        if ( update && !updateColumns.isEmpty() )
+        {
+            builder.append( " when matched then update set " );
 
-            if ( i + 1 < uniqueColumns.size() )
+            for ( int i = 0; i < updateColumns.size(); i++ )
             {
-                buffer.append( operator );
+                builder.append( i > 0 ? SEPARATOR : "" ).append( updateColumns.get( i ) )
+                    .append( "=v.c" ).append( columns.indexOf( updateColumns.get( i ) ) + 1 );
             }
         }
 
-        return buffer.toString();
+        builder.append( " when not matched then insert (" ).append( String.join( SEPARATOR, columns ) )
+            .append( ") values (" );
+
+        for ( int i = 1; i <= columns.size(); i++ )
+        {
+            builder.append( i > 1 ? SEPARATOR : "" ).append( "v.c" ).append( i );
+        }
+
+        return builder.append( BRACKET_END ).toString();
+    }
+
+    private StatementTemplates.Template getUniquenessTemplate( String prefix, String suffix )
+    {
+        final String operator = batchHandler.isInclusiveUniqueColumns() ? " and " : " or ";
+
+        final StatementTemplates.TemplateBuilder builder = new StatementTemplates.TemplateBuilder().append( prefix );
+
+        appendColumns( builder, batchHandler.getUniqueColumns(), operator );
+
+        return builder.append( suffix ).build();
+    }
+
+    private void appendColumns( StatementTemplates.TemplateBuilder builder, List<String> columns, String operator )
+    {
+        for ( int i = 0; i < columns.size(); i++ )
+        {
+            builder.append( i > 0 ? operator : "" ).append( columns.get( i ) + "=" ).value();
+        }
+    }
+
+    /**
+     * Creates a statement by filling the given template with the given values.
+     *
+     * @param template the template.
+     * @param values the values for the first positions of the template.
+     * @param moreValues the values for the remaining positions, can be null.
+     * @return a SQL statement.
+     */
+    protected final String fill( StatementTemplates.Template template, List<Object> values, List<Object> moreValues )
+    {
+        final String[] fragments = template.getFragments();
+        final StringBuilder builder = new StringBuilder( template.getLength() + fragments.length * 16 );
+
+        for ( int i = 0; i < fragments.length; i++ )
+        {
+            builder.append( fragments[i] );
+
+            appendEncoded( i < values.size() ? values.get( i ) : moreValues.get( i - values.size() ), builder );
+        }
+
+        return builder.append( template.getSuffix() ).toString();
     }
 
     // -------------------------------------------------------------------------
@@ -183,95 +753,433 @@ public abstract class AbstractStatementBuilder<T>
 
     protected final String defaultEncode( Object value )
     {
-        String encoded = NULL;
+        final StringBuilder builder = new StringBuilder();
+
+        appendEncoded( value, builder );
+
+        return builder.toString();
+    }
 
-        if ( value != null )
+    /**
+     * Encodes the given value as a SQL literal and appends it to the given
+     * builder, without creating intermediate strings for common value types.
+     *
+     * @param value the value, can be null.
+     * @param builder the builder to append to.
+     */
+    protected final void appendEncoded( Object value, StringBuilder builder )
+    {
+        if ( value == null )
         {
-            final Class<?> clazz = value.getClass();
+            builder.append( NULL );
 
-            if ( clazz.equals( String.class ) )
-            {
-                encoded = encodeString( (String) value );
-            }
-            else if ( clazz.equals( Integer.class ) || clazz.equals( int.class ) )
-            {
-                encoded = encodeInteger( (Integer) value );
-            }
-            else if ( clazz.equals( Long.class ) || clazz.equals( long.class ) )
-            {
-                encoded = encodeLong( (Long) value );
-            }
-            else if ( clazz.equals( Double.class ) || clazz.equals( double.class ) )
-            {
-                encoded = encodeDouble( (Double) value );
-            }
-            else if ( clazz.equals( Boolean.class ) || clazz.equals( boolean.class ) )
-            {
-                encoded = encodeBoolean( (Boolean) value );
-            }
-            else if ( clazz.equals( Date.class ) || clazz.equals( java.sql.Date.class ) ||
-                clazz.equals( Timestamp.class ) || clazz.equals( Time.class ) )
-            {
-                encoded = encodeDate( (Date) value );
-            }
-            else
-            {
-                encoded = (String) value;
-            }
+            return;
         }
 
-        return encoded;
+        final Class<?> clazz = value.getClass();
+
+        if ( clazz.equals( String.class ) )
+        {
+            appendString( (String) value, builder );
+        }
+        else if ( clazz.equals( Integer.class ) || clazz.equals( int.class ) )
+        {
+            appendInteger( (Integer) value, builder );
+        }
+        else if ( clazz.equals( Long.class ) || clazz.equals( long.class ) )
+        {
+            appendLong( (Long) value, builder );
+        }
+        else if ( clazz.equals( Double.class ) || clazz.equals( double.class ) )
+        {
+            appendDouble( (Double) value, builder );
+        }
+        else if ( clazz.equals( Boolean.class ) || clazz.equals( boolean.class ) )
+        {
+            appendBoolean( (Boolean) value, builder );
+        }
+        else if ( clazz.equals( Date.class ) || clazz.equals( java.sql.Date.class ) ||
+            clazz.equals( Timestamp.class ) || clazz.equals( Time.class ) )
+        {
+            appendDate( (Date) value, builder );
+        }
+        else
+        {
+            builder.append( (String) value );
+        }
     }
 
     // -------------------------------------------------------------------------
     // Methods to be overridden by subclasses to change behavior
     // -------------------------------------------------------------------------
 
-    protected String encodeString( String value )
+    /**
+     * Returns the SQL expression which generates the value of the
+     * auto-increment column, or null if the auto-increment column is not part
+     * of insert statements and is populated by the database.
+     *
+     * @return the SQL expression for the auto-increment value, or null.
+     */
+    protected String getAutoIncrementValue()
     {
-        if ( value != null )
+        return null;
+    }
+
+    /**
+     * Indicates whether the values of the auto-increment column are allocated
+     * from sequence blocks by the batch handler and written as literal values
+     * instead of the auto-increment value expression.
+     *
+     * @return true if ids are allocated by the batch handler.
+     */
+    protected final boolean isAllocatedIds()
+    {
+        return batchHandler.getIdBlockSize() > 0 && getSequenceBlockStatement( 1 ) != null;
+    }
+
+    /**
+     * Creates the opening of insert statements for the given conflict mode,
+     * to be followed by a list of value rows. The default implementation
+     * uses a plain insert statement, and a MERGE statement with a VALUES
+     * source table for other conflict modes.
+     *
+     * @param conflictMode the conflict mode.
+     * @return the opening of insert statements.
+     */
+    protected String createInsertStatementOpening( ConflictMode conflictMode )
+    {
+        if ( ConflictMode.FAIL == conflictMode )
         {
-            value = value.endsWith( "\\" ) ? value.substring( 0, value.length() - 1 ) : value;
-            value = value.replaceAll( QUOTE, QUOTE + QUOTE );
+            return getInsertIntoOpening();
         }
 
-        return QUOTE + value + QUOTE;
+        return "merge into " + batchHandler.getTableName() + " t using (values ";
     }
 
+    /**
+     * Creates the closing of insert statements for the given conflict mode,
+     * following the list of value rows.
+     *
+     * @param conflictMode the conflict mode.
+     * @return the closing of insert statements, empty if none.
+     */
+    protected String createInsertStatementClosing( ConflictMode conflictMode )
+    {
+        if ( ConflictMode.FAIL == conflictMode )
+        {
+            return "";
+        }
+
+        return getMergeClosing( ConflictMode.UPDATE == conflictMode );
+    }
+
+    protected void appendString( String value, StringBuilder builder )
+    {
+        if ( legacyHooks.encodeString )
+        {
+            builder.append( encodeString( value ) );
+
+            return;
+        }
+
+        appendStringLiteral( value, builder );
+    }
+
+    protected void appendInteger( int value, StringBuilder builder )
+    {
+        if ( legacyHooks.encodeInteger )
+        {
+            builder.append( encodeInteger( value ) );
+
+            return;
+        }
+
+        builder.append( value );
+    }
+
+    protected void appendLong( long value, StringBuilder builder )
+    {
+        if ( legacyHooks.encodeLong )
+        {
+            builder.append( encodeLong( value ) );
+
+            return;
+        }
+
+        builder.append( value );
+    }
+
+    protected void appendDouble( double value, StringBuilder builder )
+    {
+        if ( legacyHooks.encodeDouble )
+        {
+            builder.append( encodeDouble( value ) );
+
+            return;
+        }
+
+        builder.append( value );
+    }
+
+    protected void appendBoolean( boolean value, StringBuilder builder )
+    {
+        if ( legacyHooks.encodeBoolean )
+        {
+            builder.append( encodeBoolean( value ) );
+
+            return;
+        }
+
+        builder.append( value ? TRUE : FALSE );
+    }
+
+    protected void appendDate( Date value, StringBuilder builder )
+    {
+        if ( legacyHooks.encodeDate )
+        {
+            builder.append( encodeDate( value ) );
+
+            return;
+        }
+
+        appendDateLiteral( value, builder );
+    }
+
+    // Encoders of earlier versions. The append methods call an encoder which
+    // a subclass overrides, so that existing subclasses keep their encoding,
+    // at the cost of an intermediate string per value. To be removed in the
+    // next release.
+
+    /**
+     * @deprecated override {@link #appendString(String, StringBuilder)} instead.
+     */
+    @Deprecated
+    protected String encodeString( String value )
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        appendStringLiteral( value, builder );
+
+        return builder.toString();
+    }
+
+    /**
+     * @deprecated override {@link #appendInteger(int, StringBuilder)} instead.
+     */
+    @Deprecated
     protected String encodeInteger( Integer value )
     {
         return String.valueOf( value );
     }
 
+    /**
+     * @deprecated override {@link #appendLong(long, StringBuilder)} instead.
+     */
+    @Deprecated
     protected String encodeLong( Long value )
     {
         return String.valueOf( value );
     }
 
+    /**
+     * @deprecated override {@link #appendDouble(double, StringBuilder)} instead.
+     */
+    @Deprecated
     protected String encodeDouble( Double value )
     {
         return String.valueOf( value );
     }
 
+    /**
+     * @deprecated override {@link #appendBoolean(boolean, StringBuilder)} instead.
+     */
+    @Deprecated
     protected String encodeBoolean( Boolean value )
     {
         return value ? TRUE : FALSE;
     }
 
+    /**
+     * @deprecated override {@link #appendDate(Date, StringBuilder)} instead.
+     */
+    @Deprecated
     protected String encodeDate( Date value )
     {
-        Calendar cal = Calendar.getInstance();
+        final StringBuilder builder = new StringBuilder();
 
-        cal.setTime( value );
+        appendDateLiteral( value, builder );
 
-        int year = cal.get( Calendar.YEAR );
-        int month = cal.get( Calendar.MONTH ) + 1;
-        int day = cal.get( Calendar.DAY_OF_MONTH );
+        return builder.toString();
+    }
+
+    private void appendStringLiteral( String value, StringBuilder builder )
+    {
+        int length = value.endsWith( "\\" ) ? value.length() - 1 : value.length();
+
+        builder.append( QUOTE_CHAR );
+
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+
+            if ( c == QUOTE_CHAR )
+            {
+                builder.append( QUOTE_CHAR );
+            }
+
+            builder.append( c );
+        }
+
+        builder.append( QUOTE_CHAR );
+    }
 
-        String yearString = String.valueOf( year );
-        String monthString = month < 10 ? "0" + month : String.valueOf( month );
-        String dayString = day < 10 ? "0" + day : String.valueOf( day );
+    private void appendDateLiteral( Date value, StringBuilder builder )
+    {
+        if ( calendar == null )
+        {
+            calendar = Calendar.getInstance();
+        }
+
+        calendar.setTime( value );
+
+        int month = calendar.get( Calendar.MONTH ) + 1;
+        int day = calendar.get( Calendar.DAY_OF_MONTH );
+
+        builder.append( QUOTE_CHAR ).append( calendar.get( Calendar.YEAR ) ).append( '-' );
+
+        if ( month < 10 )
+        {
+            builder.append( '0' );
+        }
+
+        builder.append( month ).append( '-' );
+
+        if ( day < 10 )
+        {
+            builder.append( '0' );
+        }
 
-        return QUOTE + yearString + "-" + monthString + "-" + dayString + QUOTE;
+        builder.append( day ).append( QUOTE_CHAR );
+    }
+
+    // -------------------------------------------------------------------------
+    // LiteralValueSink
+    // -------------------------------------------------------------------------
+
+    /**
+     * Value sink which encodes values as SQL literals followed by a separator.
+     */
+    private final class LiteralValueSink
+        implements ValueSink
+    {
+        private StringBuilder builder;
+
+        @Override
+        public void putInt( int value )
+        {
+            appendInteger( value, builder );
+            builder.append( SEPARATOR );
+        }
+
+        @Override
+        public void putLong( long value )
+        {
+            appendLong( value, builder );
+            builder.append( SEPARATOR );
+        }
+
+        @Override
+        public void putDouble( double value )
+        {
+            appendDouble( value, builder );
+            builder.append( SEPARATOR );
+        }
+
+        @Override
+        public void putBoolean( boolean value )
+        {
+            appendBoolean( value, builder );
+            builder.append( SEPARATOR );
+        }
+
+        @Override
+        public void putString( String value )
+        {
+            putObject( value );
+        }
+
+        @Override
+        public void putDate( Date value )
+        {
+            putObject( value );
+        }
+
+        @Override
+        public void putNull()
+        {
+            builder.append( NULL ).append( SEPARATOR );
+        }
+
+        @Override
+        public void putObject( Object value )
+        {
+            appendEncoded( value, builder );
+            builder.append( SEPARATOR );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // LegacyHooks
+    // -------------------------------------------------------------------------
+
+    /**
+     * Records which of the methods of earlier versions a statement builder
+     * class overrides, so that the values written through the append methods
+     * are the values those methods return.
+     */
+    private static final class LegacyHooks
+    {
+        private final boolean insertStatementValues;
+
+        private final boolean encodeString;
+
+        private final boolean encodeInteger;
+
+        private final boolean encodeLong;
+
+        private final boolean encodeDouble;
+
+        private final boolean encodeBoolean;
+
+        private final boolean encodeDate;
+
+        private LegacyHooks( Class<?> type )
+        {
+            insertStatementValues = isOverridden( type, "getInsertStatementValues", Object.class );
+            encodeString = isOverridden( type, "encodeString", String.class );
+            encodeInteger = isOverridden( type, "encodeInteger", Integer.class );
+            encodeLong = isOverridden( type, "encodeLong", Long.class );
+            encodeDouble = isOverridden( type, "encodeDouble", Double.class );
+            encodeBoolean = isOverridden( type, "encodeBoolean", Boolean.class );
+            encodeDate = isOverridden( type, "encodeDate", Date.class );
+        }
+
+        private static boolean isOverridden( Class<?> type, String name, Class<?> parameterType )
+        {
+            for ( Class<?> clazz = type; clazz != AbstractStatementBuilder.class; clazz = clazz.getSuperclass() )
+            {
+                try
+                {
+                    clazz.getDeclaredMethod( name, parameterType );
+
+                    return true;
+                }
+                catch ( NoSuchMethodException ex )
+                {
+                }
+            }
+
+            return false;
+        }
     }
 }
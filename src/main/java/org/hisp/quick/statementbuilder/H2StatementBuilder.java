@@ -1,7 +1,6 @@
 package org.hisp.quick.statementbuilder;
 
-import java.util.List;
-
+import org.hisp.quick.ConflictMode;
 import org.hisp.quick.batchhandler.AbstractBatchHandler;
 
 /*
@@ -49,62 +48,48 @@ public class H2StatementBuilder<T>
     // AbstractStatementBuilder implementation
     // -------------------------------------------------------------------------
 
+    /**
+     * Uses a MERGE statement with the unique columns as key for the update
+     * conflict mode, which accepts a list of value rows like an insert. Not
+     * used with an auto-increment column, as it would be assigned a new value
+     * for existing rows.
+     */
     @Override
-    public String getInsertStatementOpening()
+    protected String createInsertStatementOpening( ConflictMode conflictMode )
     {
-        List<String> columns = batchHandler.getColumns();
-
-        String autoIncrementColumn = batchHandler.getAutoIncrementColumn();
-
-        final StringBuffer buffer = new StringBuffer();
-
-        buffer.append( "insert into " + batchHandler.getTableName() + " (" );
-
-        if ( autoIncrementColumn != null )
-        {
-            buffer.append( autoIncrementColumn + SEPARATOR );
-        }
-
-        for ( String column : columns )
+        if ( isMergeKey( conflictMode ) )
         {
-            buffer.append( column + SEPARATOR );
+            return "merge into " + batchHandler.getTableName() + " (" +
+                String.join( SEPARATOR, getInsertColumns() ) + ") key (" +
+                String.join( SEPARATOR, batchHandler.getUniqueColumns() ) + ") values ";
         }
 
-        if ( columns.size() > 0 || autoIncrementColumn != null )
-        {
-            buffer.deleteCharAt( buffer.length() - 1 );
-        }
-
-        return buffer.append( BRACKET_END + " values " ).toString();
+        return super.createInsertStatementOpening( conflictMode );
     }
 
     @Override
-    public String getInsertStatementValues( T object )
+    protected String createInsertStatementClosing( ConflictMode conflictMode )
     {
-        List<Object> values = batchHandler.getValues( object );
-
-        String autoIncrementColumn = batchHandler.getAutoIncrementColumn();
-
-        final StringBuffer buffer = new StringBuffer();
-
-        buffer.append( BRACKET_START );
-
-        if ( autoIncrementColumn != null )
-        {
-            buffer.append( "nextval('" + batchHandler.getIdSequenceName() + "')" + SEPARATOR );
-        }
+        return isMergeKey( conflictMode ) ? "" : super.createInsertStatementClosing( conflictMode );
+    }
 
-        for ( Object value : values )
-        {
-            buffer.append( defaultEncode( value ) + SEPARATOR );
-        }
+    private boolean isMergeKey( ConflictMode conflictMode )
+    {
+        return ConflictMode.UPDATE == conflictMode && getAutoIncrementValue() == null;
+    }
 
-        if ( values.size() > 0 || autoIncrementColumn != null )
-        {
-            buffer.deleteCharAt( buffer.length() - 1 );
-        }
+    @Override
+    public String getSequenceBlockStatement( int size )
+    {
+        return batchHandler.getAutoIncrementColumn() != null ?
+            "select nextval('" + batchHandler.getIdSequenceName() + "') from system_range(1," + size + ");" : null;
+    }
 
-        return buffer.append( BRACKET_END + SEPARATOR ).toString();
+    @Override
+    protected String getAutoIncrementValue()
+    {
+        return batchHandler.getAutoIncrementColumn() != null ?
+            "nextval('" + batchHandler.getIdSequenceName() + "')" : null;
     }
 
     @Override
@@ -1,7 +1,5 @@
 package org.hisp.quick.statementbuilder;
 
-import java.util.List;
-
 import org.hisp.quick.batchhandler.AbstractBatchHandler;
 
 /*
@@ -49,50 +47,6 @@ public class HsqlStatementBuilder<T>
     // AbstractStatementBuilder implementation
     // -------------------------------------------------------------------------
 
-    @Override
-    public String getInsertStatementOpening()
-    {
-        List<String> columns = batchHandler.getColumns();
-
-        final StringBuffer buffer = new StringBuffer();
-
-        buffer.append( "insert into " + batchHandler.getTableName() + " (" );
-
-        for ( String column : columns )
-        {
-            buffer.append( column + SEPARATOR );
-        }
-
-        if ( columns.size() > 0 )
-        {
-            buffer.deleteCharAt( buffer.length() - 1 );
-        }
-
-        return buffer.append( BRACKET_END + " values " ).toString();
-    }
-
-    @Override
-    public String getInsertStatementValues( T object )
-    {
-        List<Object> values = batchHandler.getValues( object );
-
-        final StringBuffer buffer = new StringBuffer();
-
-        buffer.append( BRACKET_START );
-
-        for ( Object value : values )
-        {
-            buffer.append( defaultEncode( value ) + SEPARATOR );
-        }
-
-        if ( values.size() > 0 )
-        {
-            buffer.deleteCharAt( buffer.length() - 1 );
-        }
-
-        return buffer.append( BRACKET_END + SEPARATOR ).toString();
-    }
-
     @Override
     public String getDoubleColumnType()
     {
@@ -1,7 +1,9 @@
 package org.hisp.quick.statementbuilder;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.hisp.quick.ConflictMode;
 import org.hisp.quick.batchhandler.AbstractBatchHandler;
 
 /*
@@ -49,48 +51,84 @@ public class MySqlStatementBuilder<T>
     // AbstractStatementBuilder implementation
     // -------------------------------------------------------------------------
 
+    /**
+     * Creates a bulk update statement as a multi-table UPDATE joining a
+     * derived table of UNION ALL selects.
+     */
     @Override
-    public String getInsertStatementOpening()
+    public String getBulkUpdateStatement( List<T> objects )
     {
-        List<String> columns = batchHandler.getColumns();
+        final StringBuilder builder = new StringBuilder( "update " )
+            .append( batchHandler.getTableName() ).append( " t join (" );
 
-        final StringBuffer buffer = new StringBuffer();
+        final List<Object> first = new ArrayList<>( batchHandler.getValues( objects.get( 0 ) ) );
+        first.addAll( batchHandler.getIdentifierValues( objects.get( 0 ) ) );
 
-        buffer.append( "insert into " + batchHandler.getTableName() + " (" );
+        builder.append( "select " );
 
-        for ( String column : columns )
+        for ( int i = 0; i < first.size(); i++ )
         {
-            buffer.append( column + SEPARATOR );
+            builder.append( i > 0 ? SEPARATOR : "" );
+            appendEncoded( first.get( i ), builder );
+            builder.append( " as c" ).append( i + 1 );
         }
 
-        if ( columns.size() > 0 )
+        for ( T object : objects.subList( 1, objects.size() ) )
         {
-            buffer.deleteCharAt( buffer.length() - 1 );
+            builder.append( " union all select " );
+            appendBulkUpdateRow( object, builder );
         }
 
-        return buffer.append( BRACKET_END + " values " ).toString();
+        builder.append( ") v on " );
+        appendBulkUpdateCondition( builder );
+        builder.append( " set " );
+        appendBulkUpdateAssignments( "t.", builder );
+
+        return builder.append( ";" ).toString();
     }
 
     @Override
-    public String getInsertStatementValues( T object )
+    protected String createInsertStatementOpening( ConflictMode conflictMode )
     {
-        List<Object> values = batchHandler.getValues( object );
-
-        final StringBuffer buffer = new StringBuffer();
+        final String opening = getInsertIntoOpening();
 
-        buffer.append( BRACKET_START );
+        return ConflictMode.IGNORE == conflictMode ? opening.replaceFirst( "insert", "insert ignore" ) : opening;
+    }
 
-        for ( Object value : values )
+    @Override
+    protected String createInsertStatementClosing( ConflictMode conflictMode )
+    {
+        if ( ConflictMode.UPDATE == conflictMode )
         {
-            buffer.append( defaultEncode( value ) + SEPARATOR );
-        }
+            List<String> updateColumns = getConflictUpdateColumns();
 
-        if ( values.size() > 0 )
-        {
-            buffer.deleteCharAt( buffer.length() - 1 );
+            if ( updateColumns.isEmpty() )
+            {
+                updateColumns = batchHandler.getUniqueColumns().subList( 0, 1 );
+            }
+
+            final StringBuilder builder = new StringBuilder( " on duplicate key update " );
+
+            for ( int i = 0; i < updateColumns.size(); i++ )
+            {
+                builder.append( i > 0 ? SEPARATOR : "" ).append( updateColumns.get( i ) )
+                    .append( "=values(" ).append( updateColumns.get( i ) ).append( BRACKET_END );
+            }
+
+            return builder.toString();
         }
 
-        return buffer.append( BRACKET_END + SEPARATOR ).toString();
+        return "";
+    }
+
+    /**
+     * Kept at 1000, as range scans over larger IN lists can exceed the range
+     * optimizer memory of MySQL, which then falls back to full table scans.
+     */
+    @Override
+    public int getMaxBulkSize()
+    {
+        return 1000;
     }
 
     @Override
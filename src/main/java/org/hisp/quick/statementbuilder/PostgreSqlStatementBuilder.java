@@ -2,6 +2,8 @@ package org.hisp.quick.statementbuilder;
 
 import java.util.List;
 
+import org.hisp.quick.ConflictMode;
+import org.hisp.quick.CopyFormat;
 import org.hisp.quick.batchhandler.AbstractBatchHandler;
 
 /*
@@ -49,60 +51,151 @@ public class PostgreSqlStatementBuilder<T>
     // AbstractStatementBuilder implementation
     // -------------------------------------------------------------------------
 
+    /**
+     * Creates a COPY FROM STDIN SQL statement for the columns of the batch
+     * handler. The auto-increment column is not part of the statement and must
+     * be populated by a column default.
+     *
+     * @param format the format of the copied data.
+     * @return a COPY SQL statement.
+     */
+    public String getCopyStatement( CopyFormat format )
+    {
+        final StringBuilder builder = new StringBuilder( "copy " )
+            .append( batchHandler.getTableName() ).append( " (" )
+            .append( String.join( SEPARATOR, isAllocatedIds() ? getInsertColumns() : batchHandler.getColumns() ) )
+            .append( BRACKET_END + " from stdin" );
+
+        if ( CopyFormat.CSV == format )
+        {
+            builder.append( " with (format csv)" );
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Creates a bulk update statement as an UPDATE FROM statement. The VALUES
+     * rows are preceded by an empty select from the table, so that literals
+     * are resolved to the types of the table columns.
+     */
     @Override
-    public String getInsertStatementOpening()
+    public String getBulkUpdateStatement( List<T> objects )
     {
-        String autoIncrementColumn = batchHandler.getAutoIncrementColumn();
-        List<String> columns = batchHandler.getColumns();
+        final String tableName = batchHandler.getTableName();
 
-        final StringBuffer buffer = new StringBuffer();
+        final StringBuilder builder = new StringBuilder( "update " ).append( tableName ).append( " t set " );
 
-        buffer.append( "insert into " + batchHandler.getTableName() + " (" );
+        appendBulkUpdateAssignments( "", builder );
 
-        if ( autoIncrementColumn != null )
-        {
-            buffer.append( autoIncrementColumn + SEPARATOR );
-        }
+        builder.append( " from (select " )
+            .append( String.join( SEPARATOR, batchHandler.getColumns() ) ).append( SEPARATOR )
+            .append( String.join( SEPARATOR, batchHandler.getIdentifierColumns() ) )
+            .append( " from " ).append( tableName ).append( " where false union all values " );
 
-        for ( String column : columns )
+        for ( T object : objects )
         {
-            buffer.append( column + SEPARATOR );
+            builder.append( BRACKET_START );
+            appendBulkUpdateRow( object, builder );
+            builder.append( BRACKET_END ).append( SEPARATOR );
         }
 
-        if ( columns.size() > 0 || autoIncrementColumn != null )
+        builder.setLength( builder.length() - 1 );
+        builder.append( ") v " ).append( getBulkUpdateAliases() ).append( " where " );
+        appendBulkUpdateCondition( builder );
+
+        return builder.append( ";" ).toString();
+    }
+
+    /**
+     * Creates an INSERT ON CONFLICT statement opening. Upserts on multiple
+     * exclusive unique columns have no single unique constraint to use as
+     * conflict target, and use a MERGE statement instead, which requires
+     * PostgreSQL 15. The VALUES rows are preceded by an empty select from the
+     * table, so that literals are resolved to the types of the table columns.
+     */
+    @Override
+    protected String createInsertStatementOpening( ConflictMode conflictMode )
+    {
+        if ( isMergeUpsert( conflictMode ) )
         {
-            buffer.deleteCharAt( buffer.length() - 1 );
+            return "merge into " + batchHandler.getTableName() + " t using (select " +
+                String.join( SEPARATOR, getInsertColumns() ) + " from " + batchHandler.getTableName() +
+                " where false union all values ";
         }
 
-        return buffer.append( BRACKET_END + " values " ).toString();
+        return getInsertIntoOpening();
     }
 
     @Override
-    public String getInsertStatementValues( T object )
+    protected String createInsertStatementClosing( ConflictMode conflictMode )
     {
-        String autoIncrementColumn = batchHandler.getAutoIncrementColumn();
-        List<Object> values = batchHandler.getValues( object );
+        if ( isMergeUpsert( conflictMode ) )
+        {
+            return getMergeClosing( true );
+        }
+        else if ( ConflictMode.UPDATE == conflictMode )
+        {
+            final List<String> updateColumns = getConflictUpdateColumns();
 
-        final StringBuffer buffer = new StringBuffer();
+            if ( updateColumns.isEmpty() )
+            {
+                return " on conflict do nothing";
+            }
 
-        buffer.append( BRACKET_START );
+            final StringBuilder builder = new StringBuilder( " on conflict (" )
+                .append( String.join( SEPARATOR, batchHandler.getUniqueColumns() ) ).append( ") do update set " );
 
-        if ( autoIncrementColumn != null )
-        {
-            buffer.append( "nextval('" + batchHandler.getIdSequenceName() + "')" + SEPARATOR );
-        }
+            for ( int i = 0; i < updateColumns.size(); i++ )
+            {
+                builder.append( i > 0 ? SEPARATOR : "" ).append( updateColumns.get( i ) )
+                    .append( "=excluded." ).append( updateColumns.get( i ) );
+            }
 
-        for ( Object value : values )
-        {
-            buffer.append( defaultEncode( value ) + SEPARATOR );
+            return builder.toString();
         }
-
-        if ( values.size() > 0 || autoIncrementColumn != null )
+        else if ( ConflictMode.IGNORE == conflictMode )
         {
-            buffer.deleteCharAt( buffer.length() - 1 );
+            return " on conflict do nothing";
         }
 
-        return buffer.append( BRACKET_END + SEPARATOR ).toString();
+        return "";
+    }
+
+    /**
+     * Indicates whether upserts match existing rows on any of multiple
+     * exclusive unique columns.
+     */
+    private boolean isMergeUpsert( ConflictMode conflictMode )
+    {
+        return ConflictMode.UPDATE == conflictMode && !batchHandler.isInclusiveUniqueColumns() &&
+            batchHandler.getUniqueColumns().size() > 1;
+    }
+
+    @Override
+    public String getSequenceBlockStatement( int size )
+    {
+        return batchHandler.getAutoIncrementColumn() != null ?
+            "select nextval('" + batchHandler.getIdSequenceName() + "') from generate_series(1," + size + ");" : null;
+    }
+
+    @Override
+    protected String getAutoIncrementValue()
+    {
+        return batchHandler.getAutoIncrementColumn() != null ?
+            "nextval('" + batchHandler.getIdSequenceName() + "')" : null;
+    }
+
+    /**
+     * Bulk statements hold values as literals, which are not subject to the
+     * limit of 32767 bind parameters per statement, and PostgreSQL handles
+     * IN and VALUES lists of thousands of rows well. Larger chunks save round
+     * trips.
+     */
+    @Override
+    public int getMaxBulkSize()
+    {
+        return 5000;
     }
 
     @Override
@@ -0,0 +1,227 @@
+package org.hisp.quick.statementbuilder;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class holding the invariant SQL fragments of the statements produced by a
+ * statement builder for a batch handler, such as table name, column lists
+ * and operators. Templates are compiled once and only have the values of an
+ * object filled in when a statement is created. Instances are immutable and
+ * can be shared across batch handler instances.
+ */
+public class StatementTemplates
+{
+    private final String insertStatementOpening;
+
+    private final String insertStatementClosing;
+
+    private final String noColumnInsertStatementOpening;
+
+    private final String preparedInsertStatement;
+
+    private final Template selectStatement;
+
+    private final Template updateStatement;
+
+    private final Template deleteStatement;
+
+    private final Template uniquenessStatement;
+
+    private final Template uniquenessClause;
+
+    public StatementTemplates( String insertStatementOpening, String insertStatementClosing,
+        String noColumnInsertStatementOpening,
+        String preparedInsertStatement, Template selectStatement, Template updateStatement,
+        Template deleteStatement, Template uniquenessStatement, Template uniquenessClause )
+    {
+        this.insertStatementOpening = insertStatementOpening;
+        this.insertStatementClosing = insertStatementClosing;
+        this.noColumnInsertStatementOpening = noColumnInsertStatementOpening;
+        this.preparedInsertStatement = preparedInsertStatement;
+        this.selectStatement = selectStatement;
+        this.updateStatement = updateStatement;
+        this.deleteStatement = deleteStatement;
+        this.uniquenessStatement = uniquenessStatement;
+        this.uniquenessClause = uniquenessClause;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public String getInsertStatementOpening()
+    {
+        return insertStatementOpening;
+    }
+
+    public String getInsertStatementClosing()
+    {
+        return insertStatementClosing;
+    }
+
+    public String getNoColumnInsertStatementOpening()
+    {
+        return noColumnInsertStatementOpening;
+    }
+
+    public String getPreparedInsertStatement()
+    {
+        return preparedInsertStatement;
+    }
+
+    public Template getSelectStatement()
+    {
+        return selectStatement;
+    }
+
+    public Template getUpdateStatement()
+    {
+        return updateStatement;
+    }
+
+    public Template getDeleteStatement()
+    {
+        return deleteStatement;
+    }
+
+    public Template getUniquenessStatement()
+    {
+        return uniquenessStatement;
+    }
+
+    public Template getUniquenessClause()
+    {
+        return uniquenessClause;
+    }
+
+    // -------------------------------------------------------------------------
+    // Template
+    // -------------------------------------------------------------------------
+
+    /**
+     * SQL statement template made up of literal fragments, where each
+     * fragment is followed by a value, and a suffix following the last value.
+     */
+    public static class Template
+    {
+        private final String[] fragments;
+
+        private final String suffix;
+
+        private final int length;
+
+        private Template( List<String> fragments, String suffix )
+        {
+            this.fragments = fragments.toArray( new String[0] );
+            this.suffix = suffix;
+
+            int length = suffix.length();
+
+            for ( String fragment : fragments )
+            {
+                length += fragment.length();
+            }
+
+            this.length = length;
+        }
+
+        /**
+         * Returns the literal fragments, each to be followed by a value.
+         *
+         * @return the fragments.
+         */
+        public String[] getFragments()
+        {
+            return fragments;
+        }
+
+        /**
+         * Returns the literal suffix following the last value.
+         *
+         * @return the suffix.
+         */
+        public String getSuffix()
+        {
+            return suffix;
+        }
+
+        /**
+         * Returns the total length of the literal parts of the template.
+         *
+         * @return the literal length.
+         */
+        public int getLength()
+        {
+            return length;
+        }
+    }
+
+    /**
+     * Builder of templates, which accumulates literal SQL and value positions
+     * in statement order.
+     */
+    public static class TemplateBuilder
+    {
+        private final List<String> fragments = new ArrayList<>();
+
+        private final StringBuilder literal = new StringBuilder();
+
+        /**
+         * Appends literal SQL.
+         *
+         * @param sql the literal SQL.
+         * @return this builder.
+         */
+        public TemplateBuilder append( String sql )
+        {
+            literal.append( sql );
+            return this;
+        }
+
+        /**
+         * Appends a value position.
+         *
+         * @return this builder.
+         */
+        public TemplateBuilder value()
+        {
+            fragments.add( literal.toString() );
+            literal.setLength( 0 );
+            return this;
+        }
+
+        public Template build()
+        {
+            return new Template( fragments, literal.toString() );
+        }
+    }
+}
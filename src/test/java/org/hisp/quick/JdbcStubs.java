@@ -0,0 +1,275 @@
+package org.hisp.quick;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+/**
+ * Stubs of JDBC interfaces for tests, backed by dynamic proxies.
+ */
+public final class JdbcStubs
+{
+    private JdbcStubs()
+    {
+    }
+
+    /**
+     * Answers a call on a stub by method name and arguments.
+     */
+    public interface Handler
+    {
+        Object invoke( String name, Object[] args )
+            throws Exception;
+    }
+
+    /**
+     * Returns a stub of the given interface whose calls are answered by the
+     * given handler. A null answer to a method with a primitive return type
+     * is returned as false or 0.
+     *
+     * @param type the interface.
+     * @param handler the handler.
+     * @return a stub.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <P> P stub( Class<P> type, Handler handler )
+    {
+        return (P) Proxy.newProxyInstance( JdbcStubs.class.getClassLoader(), new Class<?>[] { type },
+            ( proxy, method, args ) -> {
+                Object result = handler.invoke( method.getName(), args != null ? args : new Object[0] );
+
+                if ( result != null || !method.getReturnType().isPrimitive() || method.getReturnType() == void.class )
+                {
+                    return result;
+                }
+
+                return method.getReturnType() == boolean.class ? false : convert( 0, method.getReturnType() );
+            } );
+    }
+
+    /**
+     * Returns a result set over the given rows, with the given column labels.
+     * Values are read by 1-based index or by label, ignoring case, and are
+     * converted to the type of the getter.
+     *
+     * @param labels the column labels.
+     * @param rows the rows.
+     * @return a result set.
+     */
+    public static ResultSet resultSet( String[] labels, Object[]... rows )
+    {
+        return resultSet( labels, null, rows );
+    }
+
+    /**
+     * Returns a result set over the given rows, with the given column labels
+     * and column types.
+     *
+     * @param labels the column labels.
+     * @param types the column types of {@link java.sql.Types}, or null.
+     * @param rows the rows.
+     * @return a result set.
+     */
+    public static ResultSet resultSet( String[] labels, int[] types, Object[]... rows )
+    {
+        final ResultSetMetaData metaData = metaData( labels, types );
+        final int[] row = { -1 };
+        final boolean[] wasNull = new boolean[1];
+
+        return stub( ResultSet.class, ( name, args ) -> {
+            switch ( name )
+            {
+                case "next":
+                    return ++row[0] < rows.length;
+                case "getMetaData":
+                    return metaData;
+                case "getFetchSize":
+                    return rows.length;
+                case "wasNull":
+                    return wasNull[0];
+                case "close":
+                    return null;
+                default:
+                    if ( !name.startsWith( "get" ) || args.length == 0 )
+                    {
+                        return null;
+                    }
+
+                    Object value = rows[row[0]][getIndex( labels, args[0] )];
+
+                    wasNull[0] = value == null;
+
+                    return getValue( name, value );
+            }
+        } );
+    }
+
+    /**
+     * Returns result set meta data with the given column labels.
+     *
+     * @param labels the column labels.
+     * @return result set meta data.
+     */
+    public static ResultSetMetaData metaData( String... labels )
+    {
+        return metaData( labels, null );
+    }
+
+    /**
+     * Returns result set meta data with the given column labels and column
+     * types. Columns are of type OTHER if no types are given.
+     *
+     * @param labels the column labels.
+     * @param types the column types of {@link java.sql.Types}, or null.
+     * @return result set meta data.
+     */
+    public static ResultSetMetaData metaData( String[] labels, int[] types )
+    {
+        return stub( ResultSetMetaData.class, ( name, args ) -> {
+            switch ( name )
+            {
+                case "getColumnCount":
+                    return labels.length;
+                case "getColumnType":
+                    return types != null ? types[(Integer) args[0] - 1] : Types.OTHER;
+                default:
+                    return labels[(Integer) args[0] - 1];
+            }
+        } );
+    }
+
+    /**
+     * Returns a connection which creates the given statement.
+     *
+     * @param statement the statement.
+     * @return a connection.
+     */
+    public static Connection connection( Statement statement )
+    {
+        return stub( Connection.class, ( name, args ) -> "createStatement".equals( name ) ? statement : null );
+    }
+
+    /**
+     * Returns a data source which returns the given connection.
+     *
+     * @param connection the connection.
+     * @return a data source.
+     */
+    public static DataSource dataSource( Connection connection )
+    {
+        return stub( DataSource.class, ( name, args ) -> "getConnection".equals( name ) ? connection : null );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static int getIndex( String[] labels, Object column )
+        throws SQLException
+    {
+        if ( column instanceof Integer )
+        {
+            return (Integer) column - 1;
+        }
+
+        Map<String, Integer> indexes = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+
+        for ( int i = 0; i < labels.length; i++ )
+        {
+            indexes.put( labels[i], i );
+        }
+
+        Integer index = indexes.get( (String) column );
+
+        if ( index == null )
+        {
+            throw new SQLException( "Column not found: " + column + " in " + Arrays.toString( labels ) );
+        }
+
+        return index;
+    }
+
+    private static Object getValue( String getter, Object value )
+    {
+        switch ( getter )
+        {
+            case "getInt":
+                return convert( value, int.class );
+            case "getLong":
+                return convert( value, long.class );
+            case "getDouble":
+                return convert( value, double.class );
+            case "getBoolean":
+                return value != null && (Boolean) value;
+            case "getString":
+                return value != null ? String.valueOf( value ) : null;
+            default:
+                return value;
+        }
+    }
+
+    private static Object convert( Object value, Class<?> type )
+    {
+        Number number = value != null ? (Number) value : 0;
+
+        if ( type == int.class )
+        {
+            return number.intValue();
+        }
+        else if ( type == long.class )
+        {
+            return number.longValue();
+        }
+        else if ( type == double.class )
+        {
+            return number.doubleValue();
+        }
+        else if ( type == float.class )
+        {
+            return number.floatValue();
+        }
+        else if ( type == short.class )
+        {
+            return number.shortValue();
+        }
+
+        return number.byteValue();
+    }
+}
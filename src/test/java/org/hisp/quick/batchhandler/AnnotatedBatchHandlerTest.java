@@ -0,0 +1,173 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hisp.quick.InsertMode;
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementBuilder;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.model.Category;
+import org.hisp.quick.statementbuilder.PostgreSqlStatementBuilder;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class AnnotatedBatchHandlerTest
+{
+    private JdbcConfiguration postgreSqlJdbcConfig = new JdbcConfiguration( StatementDialect.POSTGRESQL, null );
+
+    @Test
+    public void testMetadata()
+    {
+        AnnotatedBatchHandler<Category> batchHandler = new AnnotatedBatchHandler<>( postgreSqlJdbcConfig, Category.class );
+
+        assertEquals( "category", batchHandler.getTableName() );
+        assertEquals( "id", batchHandler.getAutoIncrementColumn() );
+        assertEquals( "category_sequence", batchHandler.getIdSequenceName() );
+        assertFalse( batchHandler.isInclusiveUniqueColumns() );
+        assertEquals( Arrays.asList( "code", "shortname", "weight", "active", "created", "parentid" ), batchHandler.getColumns() );
+        assertEquals( Arrays.asList( "code", "shortname" ), batchHandler.getUniqueColumns() );
+        assertEquals( Collections.singletonList( "id" ), batchHandler.getIdentifierColumns() );
+        assertSame( batchHandler.getColumns(), new AnnotatedBatchHandler<>( postgreSqlJdbcConfig, Category.class ).getColumns() );
+    }
+
+    @Test
+    public void testStatements()
+    {
+        AnnotatedBatchHandler<Category> batchHandler = new AnnotatedBatchHandler<>( postgreSqlJdbcConfig, Category.class );
+
+        StatementBuilder<Category> builder = new PostgreSqlStatementBuilder<>( batchHandler );
+
+        Category category = new Category( "CodeA", "Name 'A'", 1.5, true, null, 7L );
+        category.setId( 3 );
+
+        assertEquals( "insert into category (id,code,shortname,weight,active,created,parentid) values ", builder.getInsertStatementOpening() );
+        assertEquals( "(nextval('category_sequence'),'CodeA','Name ''A''',1.5,true,null,7),", builder.getInsertStatementValues( category ) );
+        assertEquals( Arrays.asList( 3 ), batchHandler.getIdentifierValues( category ) );
+        assertEquals( Arrays.asList( "CodeA", "Name 'A'" ), batchHandler.getUniqueValues( category ) );
+    }
+
+    @Test
+    public void testMapRow()
+        throws SQLException
+    {
+        AnnotatedBatchHandler<Category> batchHandler = new AnnotatedBatchHandler<>( postgreSqlJdbcConfig, Category.class );
+
+        Timestamp created = new Timestamp( 1000L );
+
+        Category category = batchHandler.mapRow( getResultSet(
+            new String[] { "parentid", "id", "code", "shortname", "weight", "active", "created" },
+            new Object[] { 7L, 3, "CodeA", "NameA", 1.5, true, created } ) );
+
+        assertEquals( 3, category.getId() );
+        assertEquals( "CodeA", category.getCode() );
+        assertEquals( "NameA", category.getShortName() );
+        assertEquals( 1.5, category.getWeight(), 0.0 );
+        assertTrue( category.isActive() );
+        assertEquals( created, category.getCreated() );
+        assertEquals( Long.valueOf( 7L ), category.getParentId() );
+    }
+
+    @Test
+    public void testPreparedBatch()
+    {
+        List<String> calls = new ArrayList<>();
+
+        PreparedStatement insertStatement = stub( PreparedStatement.class, ( name, args ) -> {
+            calls.add( name + Arrays.asList( args ) );
+
+            return "executeBatch".equals( name ) ? new int[] { 1, 1 } : null;
+        } );
+
+        Connection connection = stub( Connection.class, ( name, args ) -> {
+            if ( "prepareStatement".equals( name ) )
+            {
+                assertEquals( "insert into category (id,code,shortname,weight,active,created,parentid) " +
+                    "values (nextval('category_sequence'),?,?,?,?,?,?)", args[0] );
+
+                return insertStatement;
+            }
+
+            return "createStatement".equals( name ) ? stub( Statement.class, ( n, a ) -> null ) : null;
+        } );
+
+        AnnotatedBatchHandler<Category> batchHandler = new AnnotatedBatchHandler<>(
+            new JdbcConfiguration( StatementDialect.POSTGRESQL, dataSource( connection ) ), Category.class );
+
+        batchHandler.setInsertMode( InsertMode.PREPARED_BATCH );
+        batchHandler.init();
+
+        Category categoryA = new Category( "CodeA", "NameA", 1.5, true, Timestamp.valueOf( "2020-05-17 13:45:30" ), 7L );
+        Category categoryB = new Category( "CodeB", "NameB", 2.5, false, null, null );
+
+        batchHandler.addObject( categoryA );
+        batchHandler.addObject( categoryB );
+
+        assertFalse( calls.contains( "executeBatch[]" ) );
+
+        batchHandler.flush();
+
+        assertEquals( Arrays.asList(
+            "setString[1, CodeA]", "setString[2, NameA]", "setDouble[3, 1.5]", "setBoolean[4, true]",
+            "setDate[5, 2020-05-17]", "setLong[6, 7]", "addBatch[]",
+            "setString[1, CodeB]", "setString[2, NameB]", "setDouble[3, 2.5]", "setBoolean[4, false]",
+            "setNull[5, 91]", "setNull[6, 0]", "addBatch[]",
+            "executeBatch[]", "close[]" ), calls );
+        assertEquals( 2, batchHandler.getInsertedObjectCount() );
+        assertEquals( "(nextval('category_sequence'),'CodeA','NameA',1.5,true,'2020-05-17',7),",
+            new PostgreSqlStatementBuilder<>( batchHandler ).getInsertStatementValues( categoryA ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testRequireTableAnnotation()
+    {
+        new AnnotatedBatchHandler<>( postgreSqlJdbcConfig, String.class );
+    }
+
+    private ResultSet getResultSet( String[] labels, Object[] values )
+        throws SQLException
+    {
+        ResultSet resultSet = resultSet( labels, new Object[][] { values } );
+        resultSet.next();
+
+        return resultSet;
+    }
+}
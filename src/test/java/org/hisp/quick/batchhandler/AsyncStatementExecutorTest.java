@@ -0,0 +1,111 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hisp.quick.flushpolicy.DefaultFlushPolicy;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class AsyncStatementExecutorTest
+{
+    @Test
+    public void testExecuteInOrder()
+        throws SQLException
+    {
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        AsyncStatementExecutor executor = new AsyncStatementExecutor( getStatement( executed, null ), new DefaultFlushPolicy(), 2, 16 );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            executor.submit( executor.getBuffer().append( "insert " ).append( i ), 1 );
+        }
+
+        executor.await();
+        executor.shutdown();
+
+        assertEquals( 10, executed.size() );
+        assertEquals( "insert 0", executed.get( 0 ) );
+        assertEquals( "insert 9", executed.get( 9 ) );
+        assertEquals( 10, executor.getUpdateCount() );
+    }
+
+    @Test
+    public void testRethrowFirstFailure()
+        throws SQLException
+    {
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        AsyncStatementExecutor executor = new AsyncStatementExecutor( getStatement( executed, "insert 1" ), new DefaultFlushPolicy(), 1, 16 );
+
+        executor.submit( executor.getBuffer().append( "insert 0" ), 1 );
+        executor.submit( executor.getBuffer().append( "insert 1" ), 1 );
+
+        try
+        {
+            executor.await();
+
+            fail( "Expected failure of pending statement" );
+        }
+        catch ( SQLException ex )
+        {
+            assertEquals( "Failed: insert 1", ex.getMessage() );
+        }
+
+        executor.shutdown();
+
+        assertEquals( 1, executed.size() );
+    }
+
+    private Statement getStatement( List<String> executed, String failingSql )
+    {
+        return stub( Statement.class, ( name, args ) -> {
+            if ( "executeUpdate".equals( name ) )
+            {
+                if ( args[0].equals( failingSql ) )
+                {
+                    throw new SQLException( "Failed: " + failingSql );
+                }
+
+                executed.add( (String) args[0] );
+
+                return 1;
+            }
+
+            return null;
+        } );
+    }
+}
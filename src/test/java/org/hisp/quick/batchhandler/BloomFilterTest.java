@@ -0,0 +1,97 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest
+{
+    @Test
+    public void testNoFalseNegatives()
+    {
+        BloomFilter filter = new BloomFilter( 64 * 1024, 0.01 );
+        UniqueKeyHasher hasher = new UniqueKeyHasher();
+
+        for ( int i = 0; i < 20000; i++ )
+        {
+            hasher.reset();
+            hasher.putInt( i );
+            filter.put( hasher.getHigh(), hasher.getLow() );
+        }
+
+        for ( int i = 0; i < 20000; i++ )
+        {
+            hasher.reset();
+            hasher.putInt( i );
+            assertTrue( filter.mightContain( hasher.getHigh(), hasher.getLow() ) );
+        }
+
+        assertEquals( 20000, filter.getSize() );
+        assertEquals( 7, filter.getHashCount() );
+    }
+
+    @Test
+    public void testFalsePositiveRateWithinCapacity()
+    {
+        BloomFilter filter = new BloomFilter( 64 * 1024, 0.01 );
+        UniqueKeyHasher hasher = new UniqueKeyHasher();
+
+        long capacity = filter.getCapacity();
+
+        for ( long i = 0; i < capacity; i++ )
+        {
+            hasher.reset();
+            hasher.putLong( i );
+            filter.put( hasher.getHigh(), hasher.getLow() );
+        }
+
+        int falsePositives = 0;
+
+        for ( long i = capacity; i < capacity + 100000; i++ )
+        {
+            hasher.reset();
+            hasher.putLong( i );
+
+            if ( filter.mightContain( hasher.getHigh(), hasher.getLow() ) )
+            {
+                falsePositives++;
+            }
+        }
+
+        assertTrue( "False positives: " + falsePositives, falsePositives < 1500 );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testInvalidFalsePositiveRate()
+    {
+        new BloomFilter( 1024, 1.5 );
+    }
+}
@@ -0,0 +1,180 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.model.DataValue;
+import org.hisp.quick.model.DataValueBatchHandler;
+import org.hisp.quick.model.Period;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class ExistenceIndexTest
+{
+    private JdbcConfiguration config = new JdbcConfiguration( StatementDialect.POSTGRESQL, null );
+
+    @Test
+    public void testAddRowMatchesObject()
+        throws SQLException
+    {
+        ExistenceIndex<DataValue> index = new ExistenceIndex<>( new DataValueBatchHandler( config ), 16, 100 );
+
+        assertTrue( index.addRow( getResultSet( 1L, 2L, 3L ) ) );
+        assertTrue( index.addRow( getResultSet( 4, 5, 6 ) ) );
+
+        assertEquals( 2, index.size() );
+        assertTrue( index.contains( new DataValue( 1, 2, 3, "ValueA" ) ) );
+        assertTrue( index.contains( new DataValue( 4, 5, 6, "ValueB" ) ) );
+        assertFalse( index.contains( new DataValue( 1, 2, 4, "ValueA" ) ) );
+    }
+
+    @Test
+    public void testMaxSize()
+        throws SQLException
+    {
+        ExistenceIndex<DataValue> index = new ExistenceIndex<>( new DataValueBatchHandler( config ), 16, 2 );
+
+        assertTrue( index.add( new DataValue( 1, 2, 3, "ValueA" ) ) );
+        assertTrue( index.add( new DataValue( 1, 2, 4, "ValueB" ) ) );
+        assertFalse( index.add( new DataValue( 1, 2, 5, "ValueC" ) ) );
+        assertFalse( index.addRow( getResultSet( 1, 2, 6 ) ) );
+
+        assertEquals( 2, index.size() );
+        assertTrue( index.contains( new DataValue( 1, 2, 4, "ValueB" ) ) );
+        assertFalse( index.contains( new DataValue( 1, 2, 5, "ValueC" ) ) );
+    }
+
+    @Test
+    public void testExistingRowsMatchObjects()
+    {
+        Statement statement = stub( Statement.class, ( name, args ) -> "executeQuery".equals( name ) ?
+            resultSet( new String[] { "periodtype", "startdate" }, new int[] { Types.CHAR, Types.DATE },
+                new Object[][] { { "Monthly  ", Date.valueOf( "2024-01-01" ) } } ) : null );
+
+        AnnotatedBatchHandler<Period> batchHandler = new AnnotatedBatchHandler<>(
+            new JdbcConfiguration( StatementDialect.POSTGRESQL, dataSource( connection( statement ) ) ), Period.class );
+
+        batchHandler.init();
+
+        Period existing = new Period( "Monthly", new java.util.Date( Date.valueOf( "2024-01-01" ).getTime() + 13 * 3600000L ) );
+        Period missing = new Period( "Monthly", Date.valueOf( "2024-02-01" ) );
+
+        List<Period> periods = Arrays.asList( existing, missing );
+
+        assertEquals( Collections.singletonList( missing ), batchHandler.filterNonExisting( periods ) );
+        assertEquals( Collections.singleton( batchHandler.getUniqueValues( existing ) ), batchHandler.existingKeys( periods ) );
+    }
+
+    @Test
+    public void testTrailingSpacesOfVarcharColumnsAreSignificant()
+    {
+        Statement statement = stub( Statement.class, ( name, args ) -> "executeQuery".equals( name ) ?
+            resultSet( new String[] { "periodtype", "startdate" }, new int[] { Types.VARCHAR, Types.DATE },
+                new Object[][] { { "Monthly ", Date.valueOf( "2024-01-01" ) } } ) : null );
+
+        AnnotatedBatchHandler<Period> batchHandler = new AnnotatedBatchHandler<>(
+            new JdbcConfiguration( StatementDialect.POSTGRESQL, dataSource( connection( statement ) ) ), Period.class );
+
+        batchHandler.init();
+
+        List<Period> periods = Arrays.asList( new Period( "Monthly", Date.valueOf( "2024-01-01" ) ) );
+
+        assertEquals( periods, batchHandler.filterNonExisting( periods ) );
+        assertTrue( batchHandler.existingKeys( periods ).isEmpty() );
+    }
+
+    @Test
+    public void testPreloadStreamsRows()
+    {
+        boolean[] autoCommit = { true };
+        List<Object> queryState = new ArrayList<>();
+
+        Statement statement = stub( Statement.class, ( name, args ) -> {
+            if ( "setFetchSize".equals( name ) )
+            {
+                queryState.add( args[0] );
+            }
+            else if ( "executeQuery".equals( name ) )
+            {
+                queryState.add( autoCommit[0] );
+
+                return resultSet( new String[] { "dataelementid", "periodid", "sourceid" }, new Object[][] { { 1, 2, 3 } } );
+            }
+
+            return null;
+        } );
+
+        Connection connection = stub( Connection.class, ( name, args ) -> {
+            switch ( name )
+            {
+                case "createStatement":
+                    return statement;
+                case "getAutoCommit":
+                    return autoCommit[0];
+                case "setAutoCommit":
+                    autoCommit[0] = (Boolean) args[0];
+                    return null;
+                default:
+                    return null;
+            }
+        } );
+
+        DataValueBatchHandler batchHandler = new DataValueBatchHandler(
+            new JdbcConfiguration( StatementDialect.MYSQL, dataSource( connection ) ) );
+        batchHandler.setPreloadExistenceIndex( true );
+        batchHandler.init();
+
+        assertEquals( Arrays.asList( Integer.MIN_VALUE, false ), queryState );
+        assertTrue( autoCommit[0] );
+        assertTrue( batchHandler.objectExists( new DataValue( 1, 2, 3, "ValueA" ) ) );
+    }
+
+    private ResultSet getResultSet( Object... values )
+        throws SQLException
+    {
+        ResultSet resultSet = resultSet( new String[] { "dataelementid", "periodid", "sourceid" }, new Object[][] { values } );
+        resultSet.next();
+
+        return resultSet;
+    }
+}
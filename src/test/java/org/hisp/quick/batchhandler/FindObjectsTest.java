@@ -0,0 +1,117 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.model.Category;
+import org.hisp.quick.model.DataValue;
+import org.hisp.quick.model.DataValueBatchHandler;
+import org.hisp.quick.model.Period;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class FindObjectsTest
+{
+    @Test
+    public void testKeyObjectsByUniqueValuesOfArguments()
+    {
+        DataValueBatchHandler batchHandler = new DataValueBatchHandler( getConfiguration(
+            resultSet( new String[] { "what", "when", "where", "value" },
+                new Object[] { 1L, new BigDecimal( "3.00" ), 2L, "ValueA" },
+                new Object[] { 7L, 7L, 7L, "ValueX" } ) ) );
+
+        batchHandler.init();
+
+        DataValue found = new DataValue( 1, 2, 3, null );
+        DataValue missing = new DataValue( 4, 5, 6, null );
+
+        Map<List<Object>, DataValue> objects = batchHandler.findObjects( Arrays.asList( found, missing ) );
+
+        assertEquals( 1, objects.size() );
+        assertEquals( "ValueA", objects.get( Arrays.asList( 1, 2, 3 ) ).getValue() );
+    }
+
+    @Test
+    public void testMatchPaddedCharColumnsAndDays()
+    {
+        AnnotatedBatchHandler<Period> batchHandler = new AnnotatedBatchHandler<>( getConfiguration(
+            resultSet( new String[] { "id", "periodtype", "startdate" }, new int[] { Types.INTEGER, Types.CHAR, Types.DATE },
+                new Object[] { 5, "Monthly  ", Timestamp.valueOf( "2024-01-01 00:00:00" ) } ) ), Period.class );
+
+        batchHandler.init();
+
+        Period period = new Period( "Monthly", new java.util.Date( Date.valueOf( "2024-01-01" ).getTime() + 13 * 3600000L ) );
+
+        Map<List<Object>, Period> objects = batchHandler.findObjects( Arrays.asList( period ) );
+
+        assertEquals( 1, objects.size() );
+        assertEquals( 5, objects.get( batchHandler.getUniqueValues( period ) ).getId() );
+    }
+
+    @Test
+    public void testMatchExclusiveUniqueColumns()
+    {
+        AnnotatedBatchHandler<Category> batchHandler = new AnnotatedBatchHandler<>( getConfiguration(
+            resultSet( new String[] { "id", "code", "shortname", "weight", "active", "created", "parentid" },
+                new Object[] { 3, "CodeA", "NameB", 1.5, true, null, null } ) ), Category.class );
+
+        batchHandler.init();
+
+        Category categoryA = new Category( "CodeA", "NameA", 0, false, null, null );
+        Category categoryB = new Category( "CodeB", "NameB", 0, false, null, null );
+        Category categoryC = new Category( "CodeC", "NameC", 0, false, null, null );
+
+        Map<List<Object>, Category> objects = batchHandler.findObjects( Arrays.asList( categoryA, categoryB, categoryC ) );
+
+        assertEquals( 2, objects.size() );
+        assertEquals( 3, objects.get( Arrays.asList( "CodeA", "NameA" ) ).getId() );
+        assertSame( objects.get( Arrays.asList( "CodeA", "NameA" ) ), objects.get( Arrays.asList( "CodeB", "NameB" ) ) );
+        assertNull( objects.get( Arrays.asList( "CodeC", "NameC" ) ) );
+    }
+
+    private JdbcConfiguration getConfiguration( ResultSet resultSet )
+    {
+        Statement statement = stub( Statement.class, ( name, args ) -> "executeQuery".equals( name ) ? resultSet : null );
+
+        return new JdbcConfiguration( StatementDialect.POSTGRESQL, dataSource( connection( statement ) ) );
+    }
+}
@@ -0,0 +1,121 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FingerprintSetTest
+{
+    @Test
+    public void testAddAndContains()
+    {
+        FingerprintSet set = new FingerprintSet();
+
+        for ( long i = 0; i < 10000; i++ )
+        {
+            assertTrue( set.add( i, i * 31 ) );
+        }
+
+        for ( long i = 0; i < 10000; i++ )
+        {
+            assertFalse( set.add( i, i * 31 ) );
+            assertTrue( set.contains( i, i * 31 ) );
+        }
+
+        assertFalse( set.contains( 1, 1 ) );
+        assertEquals( 10000, set.size() );
+
+        set.clear();
+
+        assertEquals( 0, set.size() );
+        assertFalse( set.contains( 0, 0 ) );
+        assertTrue( set.add( 0, 0 ) );
+    }
+
+    @Test
+    public void testHashNormalizesValues()
+    {
+        assertEquals( fingerprint( Arrays.asList( 1, "A", new java.util.Date( 1000L ) ) ),
+            fingerprint( Arrays.asList( 1L, "A", new Date( 1000L ) ) ) );
+
+        assertEquals( fingerprint( Arrays.asList( "A", new java.util.Date( Date.valueOf( "2024-01-31" ).getTime() + 13 * 3600000L ) ) ),
+            fingerprint( Arrays.asList( "A", Date.valueOf( "2024-01-31" ) ) ) );
+
+        assertEquals( fingerprint( Arrays.asList( 7, 2.5 ) ),
+            fingerprint( Arrays.asList( new BigDecimal( "7.00" ), new BigDecimal( "2.5" ) ) ) );
+
+        assertNotEquals( fingerprint( Arrays.asList( 1, 2 ) ), fingerprint( Arrays.asList( 1, "2" ) ) );
+        assertNotEquals( fingerprint( Arrays.asList( Date.valueOf( "2024-01-31" ) ) ), fingerprint( Arrays.asList( Date.valueOf( "2024-02-01" ) ) ) );
+        assertNotEquals( fingerprint( Arrays.asList( "ab", "c" ) ), fingerprint( Arrays.asList( "a", "bc" ) ) );
+        assertNotEquals( fingerprint( Arrays.asList( "abc" ) ), fingerprint( Arrays.asList( "abc " ) ) );
+        assertNotEquals( fingerprint( Arrays.asList( "abc" ) ), fingerprint( Arrays.asList( "Abc" ) ) );
+        assertNotEquals( fingerprint( Arrays.asList( 1, null ) ), fingerprint( Arrays.asList( null, 1 ) ) );
+        assertNotEquals( fingerprint( Arrays.asList( "ValueA" ) ), fingerprint( Arrays.asList( "ValueA", null ) ) );
+    }
+
+    @Test
+    public void testNoCollisionsForSequentialKeys()
+    {
+        FingerprintSet set = new FingerprintSet();
+        UniqueKeyHasher hasher = new UniqueKeyHasher();
+
+        for ( int i = 0; i < 500; i++ )
+        {
+            for ( int j = 0; j < 500; j++ )
+            {
+                hasher.reset();
+                hasher.putInt( i );
+                hasher.putInt( j );
+
+                assertTrue( set.add( hasher.getHigh(), hasher.getLow() ) );
+            }
+        }
+
+        assertEquals( 250000, set.size() );
+    }
+
+    private String fingerprint( List<Object> values )
+    {
+        UniqueKeyHasher hasher = new UniqueKeyHasher();
+
+        for ( Object value : values )
+        {
+            hasher.putObject( value );
+        }
+
+        return hasher.getHigh() + ":" + hasher.getLow();
+    }
+}
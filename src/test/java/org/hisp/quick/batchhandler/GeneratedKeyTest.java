@@ -0,0 +1,155 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.hisp.quick.InsertMode;
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.model.DataElement;
+import org.hisp.quick.model.DataElementBatchHandler;
+import org.hisp.quick.model.DataValueBatchHandler;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class GeneratedKeyTest
+{
+    @Test
+    public void testDeliverGeneratedKeysOnFlush()
+    {
+        List<String> executed = new ArrayList<>();
+
+        DataElementBatchHandler batchHandler = new DataElementBatchHandler(
+            new JdbcConfiguration( StatementDialect.POSTGRESQL, getDataSource( executed, new Long[] { 11L, 12L } ) ) );
+
+        batchHandler.setGeneratedKeyConsumer( ( dataElement, id ) -> dataElement.setId( id.intValue() ) );
+        batchHandler.init();
+
+        DataElement deA = new DataElement( "CodeA", "NameA", null );
+        DataElement deB = new DataElement( "CodeB", "NameB", null );
+
+        batchHandler.addObject( deA );
+        batchHandler.addObject( deB );
+        batchHandler.flush();
+
+        assertEquals( 1, executed.size() );
+        assertEquals( 11, deA.getId() );
+        assertEquals( 12, deB.getId() );
+    }
+
+    @Test
+    public void testInsertObjectBetweenAddedObjects()
+    {
+        List<String> executed = new ArrayList<>();
+
+        DataElementBatchHandler batchHandler = new DataElementBatchHandler(
+            new JdbcConfiguration( StatementDialect.POSTGRESQL, getDataSource( executed, new Long[] { 21L },
+                new Long[] { 11L, 12L } ) ) );
+
+        batchHandler.setGeneratedKeyConsumer( ( dataElement, id ) -> dataElement.setId( id.intValue() ) );
+        batchHandler.init();
+
+        DataElement deA = new DataElement( "CodeA", "NameA", null );
+        DataElement deB = new DataElement( "CodeB", "NameB", null );
+        DataElement deC = new DataElement( "CodeC", "NameC", null );
+
+        batchHandler.addObject( deA );
+        batchHandler.insertObject( deC );
+        batchHandler.addObject( deB );
+        batchHandler.flush();
+
+        assertEquals( 2, executed.size() );
+        assertEquals( 11, deA.getId() );
+        assertEquals( 12, deB.getId() );
+        assertEquals( 21, deC.getId() );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testRequireAutoIncrementColumn()
+    {
+        DataValueBatchHandler batchHandler = new DataValueBatchHandler(
+            new JdbcConfiguration( StatementDialect.POSTGRESQL, null ) );
+
+        batchHandler.setGeneratedKeyConsumer( ( dataValue, id ) -> {} );
+        batchHandler.init();
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testRejectCopyInsertMode()
+    {
+        DataElementBatchHandler batchHandler = new DataElementBatchHandler(
+            new JdbcConfiguration( StatementDialect.POSTGRESQL, null ) );
+
+        batchHandler.setInsertMode( InsertMode.COPY );
+        batchHandler.setGeneratedKeyConsumer( ( dataElement, id ) -> {} );
+        batchHandler.init();
+    }
+
+    /**
+     * Returns a data source whose statements return the given keys as
+     * generated keys, one key array per executed statement.
+     */
+    private DataSource getDataSource( List<String> executed, Long[]... keys )
+    {
+        Statement statement = stub( Statement.class, ( name, args ) -> {
+            if ( "executeUpdate".equals( name ) && args.length == 2 )
+            {
+                assertArrayEquals( new String[] { "id" }, (String[]) args[1] );
+
+                executed.add( (String) args[0] );
+
+                return keys[executed.size() - 1].length;
+            }
+
+            if ( "getGeneratedKeys".equals( name ) )
+            {
+                Long[] statementKeys = keys[executed.size() - 1];
+                Object[][] rows = new Object[statementKeys.length][];
+
+                for ( int i = 0; i < statementKeys.length; i++ )
+                {
+                    rows[i] = new Object[] { statementKeys[i] };
+                }
+
+                return resultSet( new String[] { "id" }, rows );
+            }
+
+            return null;
+        } );
+
+        return dataSource( connection( statement ) );
+    }
+}
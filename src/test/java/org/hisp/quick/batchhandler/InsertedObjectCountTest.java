@@ -0,0 +1,83 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.quick.ConflictMode;
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.flushpolicy.DefaultFlushPolicy;
+import org.hisp.quick.model.DataValue;
+import org.hisp.quick.model.DataValueBatchHandler;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class InsertedObjectCountTest
+{
+    @Test
+    public void testCountRowsInsertedByLastFlush()
+    {
+        List<String> executed = new ArrayList<>();
+
+        DataValueBatchHandler batchHandler = new DataValueBatchHandler( new JdbcConfiguration( StatementDialect.POSTGRESQL,
+            dataSource( connection( stub( Statement.class, ( name, args ) -> {
+                if ( "executeUpdate".equals( name ) )
+                {
+                    executed.add( (String) args[0] );
+
+                    return executed.size() == 1 ? 2 : 1;
+                }
+
+                return null;
+            } ) ) ) ) );
+
+        batchHandler.setConflictMode( ConflictMode.IGNORE );
+        batchHandler.setFlushPolicy( new DefaultFlushPolicy( 2, 100000, 0 ) );
+        batchHandler.init();
+
+        batchHandler.addObject( new DataValue( 1, 1, 1, "ValueA" ) );
+        batchHandler.addObject( new DataValue( 2, 2, 2, "ValueB" ) );
+        batchHandler.addObject( new DataValue( 3, 3, 3, "ValueC" ) );
+
+        assertEquals( 1, executed.size() );
+        assertEquals( 2, batchHandler.getInsertedObjectCount() );
+        assertEquals( 0, batchHandler.getLastFlushInsertedObjectCount() );
+
+        batchHandler.flush();
+
+        assertEquals( 2, executed.size() );
+        assertEquals( 3, batchHandler.getInsertedObjectCount() );
+        assertEquals( 1, batchHandler.getLastFlushInsertedObjectCount() );
+    }
+}
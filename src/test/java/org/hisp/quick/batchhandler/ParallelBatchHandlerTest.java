@@ -0,0 +1,252 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.RoutingStrategy;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.model.DataValue;
+import org.hisp.quick.model.DataValueBatchHandler;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class ParallelBatchHandlerTest
+{
+    private static final String[] LABELS = { "what", "where", "when", "value" };
+
+    private final List<List<String>> executed = new ArrayList<>();
+
+    @Test
+    public void testRoundRobinRouting()
+    {
+        ParallelBatchHandler<DataValue> batchHandler = getBatchHandler( RoutingStrategy.ROUND_ROBIN, 2, -1 );
+        batchHandler.init();
+
+        for ( int i = 0; i < 4; i++ )
+        {
+            assertTrue( batchHandler.addObject( new DataValue( i, 1, 1, "Value" + i ) ) );
+        }
+
+        assertEquals( 4, batchHandler.getAddObjectCount() );
+
+        batchHandler.flush();
+
+        assertEquals( Collections.singletonList( "insert into datavalue (what,where,when,value) values " +
+            "(0,1,1,'Value0'),(2,1,1,'Value2')" ), executed.get( 0 ) );
+        assertEquals( Collections.singletonList( "insert into datavalue (what,where,when,value) values " +
+            "(1,1,1,'Value1'),(3,1,1,'Value3')" ), executed.get( 1 ) );
+    }
+
+    @Test
+    public void testUniqueValuesHashRouting()
+    {
+        ParallelBatchHandler<DataValue> batchHandler = getBatchHandler( RoutingStrategy.UNIQUE_VALUES_HASH, 3, -1 );
+        batchHandler.init();
+
+        List<DataValue> dataValues = new ArrayList<>();
+
+        for ( int i = 0; i < 12; i++ )
+        {
+            dataValues.add( new DataValue( i, 1, 1, "Value" + i ) );
+        }
+
+        for ( DataValue dataValue : dataValues )
+        {
+            assertTrue( batchHandler.addObject( dataValue ) );
+        }
+
+        for ( DataValue dataValue : dataValues )
+        {
+            DataValue duplicate = new DataValue( dataValue.getWhat(), 1, 1, "Duplicate" );
+
+            assertFalse( batchHandler.addObject( duplicate ) );
+        }
+
+        batchHandler.flush();
+
+        for ( DataValue dataValue : dataValues )
+        {
+            String row = "(" + dataValue.getWhat() + ",1,1,'" + dataValue.getValue() + "')";
+
+            for ( int i = 0; i < 3; i++ )
+            {
+                assertEquals( i == writerOf( dataValue, 3 ), String.join( "", executed.get( i ) ).contains( row ) );
+            }
+        }
+    }
+
+    @Test
+    public void testFlushRethrowsFirstFailure()
+    {
+        ParallelBatchHandler<DataValue> batchHandler = getBatchHandler( RoutingStrategy.ROUND_ROBIN, 3, 1 );
+        batchHandler.init();
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            batchHandler.addObject( new DataValue( i, 1, 1, "Value" + i ) );
+        }
+
+        try
+        {
+            batchHandler.flush();
+
+            fail( "Expected flush to fail" );
+        }
+        catch ( RuntimeException ex )
+        {
+            assertTrue( ex.getMessage(), getRootCause( ex ).getMessage().contains( "Writer 1 failed" ) );
+        }
+
+        assertEquals( 1, executed.get( 0 ).size() );
+        assertEquals( 1, executed.get( 2 ).size() );
+        assertTrue( batchHandler.isClosed() );
+
+        for ( AbstractBatchHandler<DataValue> writer : batchHandler.getWriters() )
+        {
+            assertTrue( writer.isClosed() );
+        }
+    }
+
+    @Test
+    public void testExistingKeysAndFindObjectsPartitionedByWriter()
+    {
+        ParallelBatchHandler<DataValue> batchHandler = getBatchHandler( RoutingStrategy.UNIQUE_VALUES_HASH, 2, -1 );
+        batchHandler.init();
+
+        List<DataValue> dataValues = new ArrayList<>();
+
+        for ( int i = 0; i < 8; i++ )
+        {
+            dataValues.add( new DataValue( i, 1, 1, null ) );
+        }
+
+        assertEquals( new HashSet<>( Arrays.asList( Arrays.asList( 0, 1, 1 ), Arrays.asList( 2, 1, 1 ),
+            Arrays.asList( 4, 1, 1 ), Arrays.asList( 6, 1, 1 ) ) ), batchHandler.existingKeys( dataValues ) );
+
+        Map<List<Object>, DataValue> found = batchHandler.findObjects( dataValues );
+
+        assertEquals( 4, found.size() );
+        assertEquals( "Value6", found.get( Arrays.asList( 6, 1, 1 ) ).getValue() );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            assertEquals( 2, executed.get( i ).size() );
+
+            for ( DataValue dataValue : dataValues )
+            {
+                String row = "(" + dataValue.getWhat() + ",1,1)";
+
+                for ( String sql : executed.get( i ) )
+                {
+                    assertEquals( i == writerOf( dataValue, 2 ), sql.contains( row ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a parallel batch handler over the given number of writers, each
+     * recording its statements and returning the rows with an even first
+     * value routed to it from queries.
+     */
+    private ParallelBatchHandler<DataValue> getBatchHandler( RoutingStrategy routing, int writerCount, int failingWriter )
+    {
+        List<DataValueBatchHandler> writers = new ArrayList<>();
+
+        for ( int i = 0; i < writerCount; i++ )
+        {
+            final int writer = i;
+            final List<String> statements = Collections.synchronizedList( new ArrayList<>() );
+
+            executed.add( statements );
+
+            Statement statement = stub( Statement.class, ( name, args ) -> {
+                if ( name.startsWith( "execute" ) && args.length > 0 && args[0] instanceof String )
+                {
+                    statements.add( (String) args[0] );
+
+                    if ( writer == failingWriter )
+                    {
+                        throw new SQLException( "Writer " + writer + " failed" );
+                    }
+
+                    if ( "executeQuery".equals( name ) )
+                    {
+                        return resultSet( LABELS, getRows( writer, writerCount ) );
+                    }
+
+                    return "execute".equals( name ) ? false : 1;
+                }
+
+                return null;
+            } );
+
+            writers.add( new DataValueBatchHandler(
+                new JdbcConfiguration( StatementDialect.POSTGRESQL, dataSource( connection( statement ) ) ) ) );
+        }
+
+        return new ParallelBatchHandler<>( writers, routing );
+    }
+
+    private Object[][] getRows( int writer, int writerCount )
+    {
+        List<Object[]> rows = new ArrayList<>();
+
+        for ( int i = 0; i < 8; i += 2 )
+        {
+            if ( writerOf( new DataValue( i, 1, 1, null ), writerCount ) == writer )
+            {
+                rows.add( new Object[] { i, 1, 1, "Value" + i } );
+            }
+        }
+
+        return rows.toArray( new Object[0][] );
+    }
+
+    private int writerOf( DataValue dataValue, int writerCount )
+    {
+        return Math.floorMod( Arrays.asList( dataValue.getWhat(), dataValue.getWhere(), dataValue.getWhen() ).hashCode(), writerCount );
+    }
+
+    private Throwable getRootCause( Throwable ex )
+    {
+        return ex.getCause() != null ? getRootCause( ex.getCause() ) : ex;
+    }
+}
@@ -0,0 +1,218 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import org.hisp.quick.CopyFormat;
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.model.DataValue;
+import org.hisp.quick.model.DataValueBatchHandler;
+import org.junit.Test;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.util.ByteStreamWriter;
+
+import static org.junit.Assert.*;
+
+public class PostgreSqlCopyWriterTest
+{
+    @Test
+    public void testWriteTextRows()
+        throws SQLException
+    {
+        RecordingCopyIn copyIn = new RecordingCopyIn();
+
+        PostgreSqlCopyWriter writer = new PostgreSqlCopyWriter( copyIn, CopyFormat.TEXT );
+
+        writer.writeRow( Arrays.asList( 1, 2, 3, "ValueA" ) );
+        writer.writeRow( Arrays.asList( 4, null, true, "Tab\tSlash\\Line\nEnd" ) );
+
+        assertEquals( 2, writer.getRowCount() );
+        assertEquals( "", copyIn.getData() );
+
+        writer.endCopy();
+
+        assertEquals( "1\t2\t3\tValueA\n4\t\\N\tt\tTab\\tSlash\\\\Line\\nEnd\n", copyIn.getData() );
+        assertTrue( copyIn.ended );
+    }
+
+    @Test
+    public void testWriteCsvRows()
+        throws SQLException
+    {
+        RecordingCopyIn copyIn = new RecordingCopyIn();
+
+        PostgreSqlCopyWriter writer = new PostgreSqlCopyWriter( copyIn, CopyFormat.CSV );
+
+        writer.writeRow( Arrays.asList( 1, null, 2.5, "Say \"hi\", Ål" ) );
+
+        writer.endCopy();
+
+        assertEquals( "1,,2.5,\"Say \"\"hi\"\", Ål\"\n", copyIn.getData() );
+    }
+
+    @Test
+    public void testWriteRowsThroughValueSink()
+        throws SQLException
+    {
+        RecordingCopyIn copyIn = new RecordingCopyIn();
+
+        PostgreSqlCopyWriter writer = new PostgreSqlCopyWriter( copyIn, CopyFormat.TEXT );
+
+        new DataValueBatchHandler( new JdbcConfiguration( StatementDialect.POSTGRESQL, null ) ).writeValues( new DataValue( 1, 2, 3, "ValueA" ), writer );
+        writer.endRow();
+        writer.putLong( 4L );
+        writer.putNull();
+        writer.putBoolean( false );
+        writer.endRow();
+
+        writer.endCopy();
+
+        assertEquals( 2, writer.getRowCount() );
+        assertEquals( "1\t2\t3\tValueA\n4\t\\N\tf\n", copyIn.getData() );
+    }
+
+    @Test
+    public void testWriteDates()
+        throws SQLException
+    {
+        RecordingCopyIn copyIn = new RecordingCopyIn();
+
+        PostgreSqlCopyWriter writer = new PostgreSqlCopyWriter( copyIn, CopyFormat.TEXT );
+
+        Timestamp created = Timestamp.valueOf( "2020-05-17 13:45:30" );
+
+        writer.writeRow( Arrays.asList( 1, created, java.sql.Date.valueOf( "2020-05-18" ) ) );
+        writer.putInt( 2 );
+        writer.putDate( created );
+        writer.endRow();
+
+        writer.endCopy();
+
+        assertEquals( "1\t2020-05-17\t2020-05-18\n2\t2020-05-17\n", copyIn.getData() );
+    }
+
+    @Test
+    public void testCancelCopy()
+        throws SQLException
+    {
+        RecordingCopyIn copyIn = new RecordingCopyIn();
+
+        PostgreSqlCopyWriter writer = new PostgreSqlCopyWriter( copyIn, CopyFormat.TEXT );
+
+        writer.writeRow( Arrays.asList( 1, "ValueA" ) );
+        writer.cancelCopy();
+
+        assertTrue( copyIn.cancelled );
+        assertFalse( copyIn.ended );
+    }
+
+    /**
+     * Copy operation which records the bytes written to it.
+     */
+    private static class RecordingCopyIn
+        implements CopyIn
+    {
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        private boolean ended = false;
+
+        private boolean cancelled = false;
+
+        String getData()
+        {
+            return new String( data.toByteArray(), StandardCharsets.UTF_8 );
+        }
+
+        @Override
+        public void writeToCopy( byte[] buf, int off, int siz )
+        {
+            data.write( buf, off, siz );
+        }
+
+        @Override
+        public void writeToCopy( ByteStreamWriter from )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void flushCopy()
+        {
+        }
+
+        @Override
+        public long endCopy()
+        {
+            ended = true;
+            return 0;
+        }
+
+        @Override
+        public int getFieldCount()
+        {
+            return 0;
+        }
+
+        @Override
+        public int getFormat()
+        {
+            return 0;
+        }
+
+        @Override
+        public int getFieldFormat( int field )
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean isActive()
+        {
+            return !ended && !cancelled;
+        }
+
+        @Override
+        public void cancelCopy()
+        {
+            cancelled = true;
+        }
+
+        @Override
+        public long getHandledRowCount()
+        {
+            return 0;
+        }
+    }
+}
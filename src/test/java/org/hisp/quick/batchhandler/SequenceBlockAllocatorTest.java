@@ -0,0 +1,132 @@
+package org.hisp.quick.batchhandler;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class SequenceBlockAllocatorTest
+{
+    @Test
+    public void testReserveBlocks()
+        throws SQLException
+    {
+        AtomicInteger queries = new AtomicInteger();
+
+        SequenceBlockAllocator allocator = new SequenceBlockAllocator( "seq" );
+        Connection connection = getConnection( new AtomicLong(), 3, queries );
+
+        for ( long id = 1; id <= 7; id++ )
+        {
+            assertEquals( id, allocator.nextId( connection, "select" ) );
+        }
+
+        assertEquals( 3, queries.get() );
+    }
+
+    @Test
+    public void testConcurrentAllocation()
+        throws Exception
+    {
+        SequenceBlockAllocator allocator = new SequenceBlockAllocator( "seq" );
+        Connection connection = getConnection( new AtomicLong(), 100, new AtomicInteger() );
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+
+        Future<?>[] futures = new Future<?>[4];
+
+        for ( int i = 0; i < futures.length; i++ )
+        {
+            futures[i] = executor.submit( () -> {
+                for ( int j = 0; j < 1000; j++ )
+                {
+                    ids.add( allocator.nextId( connection, "select" ) );
+                }
+
+                return null;
+            } );
+        }
+
+        for ( Future<?> future : futures )
+        {
+            future.get();
+        }
+
+        executor.shutdown();
+
+        assertEquals( 4000, ids.size() );
+    }
+
+    @Test
+    public void testSharedInstance()
+    {
+        assertSame( SequenceBlockAllocator.getInstance( "ds", "seq" ), SequenceBlockAllocator.getInstance( "ds", "seq" ) );
+        assertNotSame( SequenceBlockAllocator.getInstance( "ds", "seq" ), SequenceBlockAllocator.getInstance( "ds", "other" ) );
+        assertNotSame( SequenceBlockAllocator.getInstance( "ds", "seq" ), SequenceBlockAllocator.getInstance( "other", "seq" ) );
+    }
+
+    /**
+     * Returns a connection whose queries return the next block of the given
+     * size of a counter.
+     */
+    private Connection getConnection( AtomicLong sequence, int blockSize, AtomicInteger queries )
+    {
+        return connection( stub( Statement.class, ( name, args ) -> {
+            if ( !"executeQuery".equals( name ) )
+            {
+                return null;
+            }
+
+            queries.incrementAndGet();
+
+            Object[][] rows = new Object[blockSize][];
+
+            for ( int i = 0; i < blockSize; i++ )
+            {
+                rows[i] = new Object[] { sequence.incrementAndGet() };
+            }
+
+            return resultSet( new String[] { "nextval" }, rows );
+        } ) );
+    }
+}
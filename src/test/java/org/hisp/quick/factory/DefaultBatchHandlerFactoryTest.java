@@ -0,0 +1,217 @@
+package org.hisp.quick.factory;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Statement;
+
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.ConflictMode;
+import org.hisp.quick.DeduplicationScope;
+import org.hisp.quick.InsertMode;
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.batchhandler.AbstractBatchHandler;
+import org.hisp.quick.model.DataElement;
+import org.hisp.quick.model.DataElementBatchHandler;
+import org.hisp.quick.model.DataValue;
+import org.hisp.quick.model.DataValueBatchHandler;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class DefaultBatchHandlerFactoryTest
+{
+    @Test
+    public void testCreateBatchHandler()
+        throws Exception
+    {
+        DefaultBatchHandlerFactory factory = getFactory( 0 );
+
+        BatchHandler<DataValue> batchHandler = factory.createBatchHandler( DataValueBatchHandler.class );
+        BatchHandler<DataElement> otherHandler = factory.createBatchHandler( DataElementBatchHandler.class );
+
+        assertTrue( batchHandler instanceof DataValueBatchHandler );
+        assertTrue( otherHandler instanceof DataElementBatchHandler );
+        assertSame( factory.createBatchHandler( DataValueBatchHandler.class ).getConfiguration(), batchHandler.getConfiguration() );
+
+        batchHandler.close();
+
+        assertNotSame( batchHandler, factory.createBatchHandler( DataValueBatchHandler.class ) );
+    }
+
+    @Test
+    public void testReuseReleasedBatchHandler()
+        throws Exception
+    {
+        DefaultBatchHandlerFactory factory = getFactory( 1 );
+
+        BatchHandler<DataValue> batchHandlerA = factory.createBatchHandler( DataValueBatchHandler.class );
+        BatchHandler<DataValue> batchHandlerB = factory.createBatchHandler( DataValueBatchHandler.class );
+
+        assertNotSame( batchHandlerA, batchHandlerB );
+
+        batchHandlerA.close();
+
+        assertNotSame( batchHandlerA, factory.createBatchHandler( DataValueBatchHandler.class ) );
+
+        factory.releaseBatchHandler( batchHandlerA );
+        factory.releaseBatchHandler( batchHandlerB );
+
+        assertSame( batchHandlerA, factory.createBatchHandler( DataValueBatchHandler.class ) );
+
+        BatchHandler<DataValue> batchHandlerC = factory.createBatchHandler( DataValueBatchHandler.class );
+
+        assertNotSame( batchHandlerA, batchHandlerC );
+        assertNotSame( batchHandlerB, batchHandlerC );
+    }
+
+    @Test
+    public void testFlushThenCloseWithTwoBorrowers()
+        throws Exception
+    {
+        DefaultBatchHandlerFactory factory = getFactory( 2 );
+        factory.setJdbcConfiguration( new JdbcConfiguration( StatementDialect.POSTGRESQL,
+            dataSource( connection( stub( Statement.class, ( name, args ) -> null ) ) ) ) );
+
+        BatchHandler<DataValue> batchHandlerA = factory.createBatchHandler( DataValueBatchHandler.class );
+        batchHandlerA.init();
+        batchHandlerA.flush();
+        batchHandlerA.close();
+
+        BatchHandler<DataValue> batchHandlerOther = factory.createBatchHandler( DataValueBatchHandler.class );
+
+        assertNotSame( batchHandlerA, batchHandlerOther );
+
+        factory.releaseBatchHandler( batchHandlerA );
+        factory.releaseBatchHandler( batchHandlerA );
+
+        BatchHandler<DataValue> batchHandlerB = factory.createBatchHandler( DataValueBatchHandler.class );
+        batchHandlerB.init();
+
+        assertSame( batchHandlerA, batchHandlerB );
+        assertNotSame( batchHandlerA, factory.createBatchHandler( DataValueBatchHandler.class ) );
+        assertFalse( ((AbstractBatchHandler<DataValue>) batchHandlerB).isClosed() );
+    }
+
+    @Test
+    public void testRejectBatchHandlerNotLeased()
+    {
+        DefaultBatchHandlerFactory factory = getFactory( 1 );
+        DefaultBatchHandlerFactory otherFactory = getFactory( 1 );
+
+        DataValueBatchHandler created = new DataValueBatchHandler( factory.createBatchHandler( DataValueBatchHandler.class ).getConfiguration() );
+        created.setInsertMode( InsertMode.PREPARED_BATCH );
+
+        BatchHandler<DataValue> otherHandler = otherFactory.createBatchHandler( DataValueBatchHandler.class );
+
+        factory.releaseBatchHandler( created );
+        factory.releaseBatchHandler( otherHandler );
+
+        assertEquals( InsertMode.PREPARED_BATCH, created.getInsertMode() );
+        assertNotSame( created, factory.createBatchHandler( DataValueBatchHandler.class ) );
+        assertNotSame( otherHandler, factory.createBatchHandler( DataValueBatchHandler.class ) );
+
+        otherFactory.releaseBatchHandler( otherHandler );
+
+        assertSame( otherHandler, otherFactory.createBatchHandler( DataValueBatchHandler.class ) );
+    }
+
+    @Test
+    public void testResetSettingsOfReusedBatchHandler()
+    {
+        DefaultBatchHandlerFactory factory = getFactory( 1 );
+
+        DataValueBatchHandler batchHandler = (DataValueBatchHandler) factory.createBatchHandler( DataValueBatchHandler.class );
+        batchHandler.setInsertMode( InsertMode.PREPARED_BATCH );
+        batchHandler.setConflictMode( ConflictMode.UPDATE );
+        batchHandler.setDeduplicationScope( DeduplicationScope.HANDLER );
+        batchHandler.setIdBlockSize( 100 );
+
+        factory.releaseBatchHandler( batchHandler );
+
+        assertSame( batchHandler, factory.createBatchHandler( DataValueBatchHandler.class ) );
+        assertEquals( InsertMode.MULTI_ROW, batchHandler.getInsertMode() );
+        assertEquals( ConflictMode.FAIL, batchHandler.getConflictMode() );
+        assertEquals( DeduplicationScope.BATCH, batchHandler.getDeduplicationScope() );
+        assertEquals( 0, batchHandler.getIdBlockSize() );
+    }
+
+    @Test( expected = LinkageError.class )
+    public void testPropagateErrorOfConstructor()
+    {
+        getFactory( 0 ).createBatchHandler( ErrorBatchHandler.class );
+    }
+
+    @Test
+    public void testWrapExceptionOfConstructor()
+    {
+        try
+        {
+            getFactory( 0 ).createBatchHandler( ExceptionBatchHandler.class );
+            fail();
+        }
+        catch ( RuntimeException ex )
+        {
+            assertEquals( "Failed to get BatchHandler", ex.getMessage() );
+            assertTrue( ex.getCause() instanceof IllegalStateException );
+        }
+    }
+
+    private DefaultBatchHandlerFactory getFactory( int maxPoolSize )
+    {
+        DefaultBatchHandlerFactory factory = new DefaultBatchHandlerFactory();
+        factory.setJdbcConfiguration( new JdbcConfiguration( StatementDialect.POSTGRESQL, null ) );
+        factory.setMaxPoolSize( maxPoolSize );
+
+        return factory;
+    }
+
+    public static class ErrorBatchHandler
+        extends DataValueBatchHandler
+    {
+        public ErrorBatchHandler( JdbcConfiguration configuration )
+        {
+            super( configuration );
+
+            throw new LinkageError( "Failed to link" );
+        }
+    }
+
+    public static class ExceptionBatchHandler
+        extends DataValueBatchHandler
+    {
+        public ExceptionBatchHandler( JdbcConfiguration configuration )
+        {
+            super( configuration );
+
+            throw new IllegalStateException( "Failed to create" );
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.hisp.quick.flushpolicy;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.quick.FlushPolicy;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FlushPolicyTest
+{
+    @Test
+    public void testDefaultFlushPolicyMaxRows()
+    {
+        FlushPolicy policy = new DefaultFlushPolicy( 10, 0, 0 );
+
+        assertFalse( policy.isFlushRequired( 9, 1000000, 1000000 ) );
+        assertTrue( policy.isFlushRequired( 10, 0, 0 ) );
+    }
+
+    @Test
+    public void testDefaultFlushPolicyMaxLength()
+    {
+        FlushPolicy policy = new DefaultFlushPolicy( 0, 1000, 0 );
+
+        assertFalse( policy.isFlushRequired( 9, 900, 0 ) );
+        assertTrue( policy.isFlushRequired( 10, 910, 0 ) );
+        assertTrue( policy.isFlushRequired( 1, 1200, 0 ) );
+        assertEquals( 1000, policy.getBufferCapacity() );
+    }
+
+    @Test
+    public void testDefaultFlushPolicyMaxAge()
+    {
+        FlushPolicy policy = new DefaultFlushPolicy( 0, 0, 500 );
+
+        assertFalse( policy.isFlushRequired( 1, 100, 499 ) );
+        assertTrue( policy.isFlushRequired( 1, 100, 500 ) );
+    }
+
+    @Test
+    public void testAdaptiveFlushPolicy()
+    {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy( 100, 10000, 1000, 0 );
+
+        assertTrue( policy.isFlushRequired( 1000, 0, 0 ) );
+
+        policy.onFlush( 1000, 0, 1000000 );
+
+        assertEquals( 1500, policy.getTargetRows() );
+
+        policy.onFlush( 1500, 0, 1000000 );
+
+        assertEquals( 2250, policy.getTargetRows() );
+
+        policy.onFlush( 2250, 0, 10000000 );
+
+        assertEquals( 1500, policy.getTargetRows() );
+
+        policy.onFlush( 10, 0, 1 );
+
+        assertEquals( 1500, policy.getTargetRows() );
+    }
+
+    @Test
+    public void testAdaptiveFlushPolicyMaxLength()
+    {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy( 100, 100000, 500, 10000 );
+
+        policy.onFlush( 500, 5000, 1000000 );
+        policy.onFlush( 750, 7500, 1000000 );
+
+        assertEquals( 1125, policy.getTargetRows() );
+        assertTrue( policy.isFlushRequired( 1000, 10000, 0 ) );
+
+        policy.onFlush( 1000, 10000, 1000000 );
+
+        assertEquals( 1500, policy.getTargetRows() );
+
+        policy.onFlush( 1000, 10000, 10000000 );
+
+        assertEquals( 666, policy.getTargetRows() );
+        assertTrue( policy.isFlushRequired( 666, 6660, 0 ) );
+
+        policy.onFlush( 10, 100, 1 );
+
+        assertEquals( 666, policy.getTargetRows() );
+    }
+
+    @Test
+    public void testAdaptiveFlushPolicyBounds()
+    {
+        AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy( 100, 2000, 1000, 0 );
+
+        policy.onFlush( 1000, 0, 1000000 );
+        policy.onFlush( 1500, 0, 1000000 );
+
+        assertEquals( 2000, policy.getTargetRows() );
+    }
+}
@@ -0,0 +1,115 @@
+package org.hisp.quick.mapper;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.hisp.quick.model.DataValue;
+import org.hisp.quick.model.DataValueBatchHandler;
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class IndexedRowMapperTest
+{
+    private static final String[] LABELS = { "VALUE", "where", "what", "when" };
+
+    @Test
+    public void testColumnIndex()
+        throws SQLException
+    {
+        ColumnIndex index = ColumnIndex.of( getResultSet( new int[1], new Object[0][] ).getMetaData() );
+
+        assertEquals( 1, index.indexOf( "value" ) );
+        assertArrayEquals( new int[] { 3, 4 }, index.indexesOf( "What", "WHEN" ) );
+
+        try
+        {
+            index.indexOf( "who" );
+
+            fail( "Expected missing column" );
+        }
+        catch ( SQLException ex )
+        {
+            assertEquals( "Column not found in result set: who", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void testResolveColumnsOnce()
+    {
+        int[] metaDataCalls = new int[1];
+
+        ResultSet resultSet = getResultSet( metaDataCalls, new Object[][] {
+            { "ValueA", 2, 1, 3 }, { "ValueB", 5, 4, 6 } } );
+
+        List<DataValue> dataValues = new ObjectMapper<DataValue>().getList( resultSet,
+            new DataValueBatchHandler( new JdbcConfiguration( StatementDialect.POSTGRESQL, null ) ) );
+
+        assertEquals( 1, metaDataCalls[0] );
+        assertEquals( 2, dataValues.size() );
+        assertEquals( "ValueA", dataValues.get( 0 ).getValue() );
+        assertEquals( 4, dataValues.get( 1 ).getWhat() );
+        assertEquals( 5, dataValues.get( 1 ).getWhere() );
+        assertEquals( 6, dataValues.get( 1 ).getWhen() );
+    }
+
+    private ResultSet getResultSet( int[] metaDataCalls, Object[][] rows )
+    {
+        ResultSetMetaData metaData = metaData( LABELS );
+        int[] row = { -1 };
+
+        return stub( ResultSet.class, ( name, args ) -> {
+            switch ( name )
+            {
+                case "getMetaData":
+                    metaDataCalls[0]++;
+                    return metaData;
+                case "next":
+                    return ++row[0] < rows.length;
+                case "getInt":
+                case "getString":
+                    if ( args[0] instanceof String )
+                    {
+                        throw new SQLException( "Column read by label: " + args[0] );
+                    }
+
+                    return rows[row[0]][(Integer) args[0] - 1];
+                default:
+                    return null;
+            }
+        } );
+    }
+}
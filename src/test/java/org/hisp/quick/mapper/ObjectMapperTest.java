@@ -0,0 +1,86 @@
+package org.hisp.quick.mapper;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class ObjectMapperTest
+{
+    private final ObjectMapper<String> mapper = new ObjectMapper<>();
+
+    private final RowMapper<String> rowMapper = resultSet -> resultSet.getString( 1 );
+
+    @Test
+    public void testGetList()
+    {
+        assertEquals( Arrays.asList( "b", "a", "b" ), mapper.getList( getResultSet( "b", "a", "b" ), rowMapper ) );
+        assertEquals( Arrays.asList( "a" ), mapper.getList( getResultSet( "a" ), rowMapper, 10 ) );
+    }
+
+    @Test
+    public void testGetMap()
+    {
+        Map<Integer, String> map = mapper.getMap( getResultSet( "aa", "b", "cc" ), rowMapper, String::length );
+
+        assertEquals( 2, map.size() );
+        assertEquals( "cc", map.get( 2 ) );
+        assertEquals( "b", map.get( 1 ) );
+        assertEquals( Arrays.asList( 2, 1 ), new ArrayList<>( map.keySet() ) );
+    }
+
+    @Test
+    public void testForEach()
+    {
+        List<String> consumed = new ArrayList<>();
+
+        assertEquals( 2, mapper.forEach( getResultSet( "a", "b" ), rowMapper, consumed::add ) );
+        assertEquals( Arrays.asList( "a", "b" ), consumed );
+    }
+
+    private ResultSet getResultSet( String... values )
+    {
+        Object[][] rows = new Object[values.length][];
+
+        for ( int i = 0; i < values.length; i++ )
+        {
+            rows[i] = new Object[] { values[i] };
+        }
+
+        return resultSet( new String[] { "value" }, rows );
+    }
+}
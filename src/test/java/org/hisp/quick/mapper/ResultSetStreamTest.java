@@ -0,0 +1,135 @@
+package org.hisp.quick.mapper;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class ResultSetStreamTest
+{
+    @Test
+    public void testStreamRowsAndClose()
+        throws SQLException
+    {
+        List<String> calls = new ArrayList<>();
+
+        List<Integer> values;
+
+        try ( Stream<Integer> stream = ResultSetStream.stream( getConnection( calls, 3 ), "select", 50,
+            resultSet -> resultSet.getInt( 1 ), () -> calls.add( "onClose" ) ) )
+        {
+            assertEquals( "setAutoCommit:false", calls.get( 0 ) );
+            assertTrue( calls.contains( "setFetchSize:50" ) );
+
+            values = stream.collect( Collectors.toList() );
+        }
+
+        assertEquals( 3, values.size() );
+        assertEquals( Integer.valueOf( 1 ), values.get( 0 ) );
+        assertEquals( Integer.valueOf( 3 ), values.get( 2 ) );
+        assertTrue( calls.contains( "statement.close" ) );
+        assertEquals( "setAutoCommit:true", calls.get( calls.size() - 2 ) );
+        assertEquals( "onClose", calls.get( calls.size() - 1 ) );
+    }
+
+    @Test
+    public void testFetchLazily()
+        throws SQLException
+    {
+        List<String> calls = new ArrayList<>();
+
+        try ( Stream<Integer> stream = ResultSetStream.stream( getConnection( calls, 1000 ), "select", 50,
+            resultSet -> resultSet.getInt( 1 ), () -> {} ) )
+        {
+            assertEquals( 2, stream.limit( 2 ).count() );
+        }
+
+        assertEquals( 2, calls.stream().filter( "next"::equals ).count() );
+    }
+
+    private Connection getConnection( List<String> calls, int rows )
+    {
+        int[] row = new int[1];
+
+        ResultSet resultSet = stub( ResultSet.class, ( name, args ) -> {
+            switch ( name )
+            {
+                case "next":
+                    calls.add( "next" );
+                    return ++row[0] <= rows;
+                case "getInt":
+                    return row[0];
+                default:
+                    return null;
+            }
+        } );
+
+        Statement statement = stub( Statement.class, ( name, args ) -> {
+            switch ( name )
+            {
+                case "setFetchSize":
+                    calls.add( "setFetchSize:" + args[0] );
+                    return null;
+                case "executeQuery":
+                    return resultSet;
+                case "close":
+                    calls.add( "statement.close" );
+                    return null;
+                default:
+                    return null;
+            }
+        } );
+
+        return stub( Connection.class, ( name, args ) -> {
+            switch ( name )
+            {
+                case "getAutoCommit":
+                    return true;
+                case "setAutoCommit":
+                    calls.add( "setAutoCommit:" + args[0] );
+                    return null;
+                case "createStatement":
+                    return statement;
+                default:
+                    return null;
+            }
+        } );
+    }
+}
@@ -33,13 +33,17 @@ import java.sql.SQLException;
 
 import java.util.List;
 import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.ValueSink;
 import org.hisp.quick.batchhandler.AbstractBatchHandler;
+import org.hisp.quick.mapper.ColumnIndex;
+import org.hisp.quick.mapper.IndexedRowMapper;
 
 /**
  * @author Lars Helge Overland
  */
 public class DataValueBatchHandler
     extends AbstractBatchHandler<DataValue>
+    implements IndexedRowMapper<DataValue>
 {
     public DataValueBatchHandler( JdbcConfiguration config )
     {
@@ -100,16 +104,39 @@ public class DataValueBatchHandler
         return getObjectList( value.getWhat(), value.getWhere(), value.getWhen(), value.getValue() );
     }
 
+    @Override
+    public void writeValues( DataValue value, ValueSink sink )
+        throws SQLException
+    {
+        sink.putInt( value.getWhat() );
+        sink.putInt( value.getWhere() );
+        sink.putInt( value.getWhen() );
+        sink.putString( value.getValue() );
+    }
+
+    @Override
+    public String[] getColumnLabels()
+    {
+        return new String[] { "what", "when", "where", "value" };
+    }
+
     @Override
     public DataValue mapRow( ResultSet resultSet )
         throws SQLException
+    {
+        return mapRow( resultSet, ColumnIndex.of( resultSet.getMetaData() ).indexesOf( getColumnLabels() ) );
+    }
+
+    @Override
+    public DataValue mapRow( ResultSet resultSet, int[] columns )
+        throws SQLException
     {
         DataValue dataValue = new DataValue();
         
-        dataValue.setWhat( resultSet.getInt( "what" ) );
-        dataValue.setWhen( resultSet.getInt( "when" ) );
-        dataValue.setWhere( resultSet.getInt( "where" ) );
-        dataValue.setValue( resultSet.getString( "value" ) );
+        dataValue.setWhat( resultSet.getInt( columns[0] ) );
+        dataValue.setWhen( resultSet.getInt( columns[1] ) );
+        dataValue.setWhere( resultSet.getInt( columns[2] ) );
+        dataValue.setValue( resultSet.getString( columns[3] ) );
         
         return dataValue;
     }
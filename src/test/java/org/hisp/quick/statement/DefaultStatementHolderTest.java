@@ -0,0 +1,138 @@
+package org.hisp.quick.statement;
+
+/*
+ * Copyright (c) 2004-2016, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.hisp.quick.JdbcStubs.*;
+import static org.junit.Assert.*;
+
+public class DefaultStatementHolderTest
+{
+    private final List<String> prepared = new ArrayList<>();
+
+    private final Set<String> closed = new HashSet<>();
+
+    private final List<Object> bound = new ArrayList<>();
+
+    @Test
+    public void testReusePreparedStatement()
+    {
+        DefaultStatementHolder holder = new DefaultStatementHolder( getConnection(), true );
+
+        assertEquals( Integer.valueOf( 7 ), holder.queryForInteger( "select value from item where id = ?", 1 ) );
+        assertEquals( Integer.valueOf( 7 ), holder.queryForInteger( "select value from item where id = ?", 2 ) );
+        assertEquals( 1, holder.update( "delete from item where id = ?", 3 ) );
+
+        assertEquals( 2, prepared.size() );
+        assertEquals( 3, bound.size() );
+        assertEquals( 2, bound.get( 1 ) );
+        assertTrue( closed.isEmpty() );
+
+        holder.forceClose();
+
+        assertEquals( 2, closed.size() );
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed()
+    {
+        DefaultStatementHolder holder = new DefaultStatementHolder( getConnection(), true );
+        holder.setMaxCachedStatements( 2 );
+
+        holder.queryForString( "select a from item where id = ?", 1 );
+        holder.queryForString( "select b from item where id = ?", 1 );
+        holder.queryForString( "select a from item where id = ?", 1 );
+        holder.queryForString( "select c from item where id = ?", 1 );
+
+        assertEquals( 3, prepared.size() );
+        assertEquals( 1, closed.size() );
+        assertTrue( closed.contains( "select b from item where id = ?" ) );
+
+        holder.queryForString( "select a from item where id = ?", 1 );
+
+        assertEquals( 3, prepared.size() );
+    }
+
+    @Test
+    public void testDisabledCache()
+    {
+        DefaultStatementHolder holder = new DefaultStatementHolder( getConnection(), true );
+        holder.setMaxCachedStatements( 0 );
+
+        holder.queryForDouble( "select value from item where id = ?", 1 );
+        holder.queryForDouble( "select value from item where id = ?", 1 );
+
+        assertEquals( 2, prepared.size() );
+        assertEquals( 1, closed.size() );
+    }
+
+    private Connection getConnection()
+    {
+        return stub( Connection.class, ( name, args ) -> {
+            if ( "prepareStatement".equals( name ) )
+            {
+                String sql = (String) args[0];
+                prepared.add( sql );
+
+                return getPreparedStatement( sql );
+            }
+
+            return null;
+        } );
+    }
+
+    private PreparedStatement getPreparedStatement( String sql )
+    {
+        return stub( PreparedStatement.class, ( name, args ) -> {
+            switch ( name )
+            {
+                case "setInt":
+                    bound.add( args[1] );
+                    return null;
+                case "executeQuery":
+                    return resultSet( new String[] { "value" }, new Object[][] { { 7 } } );
+                case "executeUpdate":
+                    return 1;
+                case "close":
+                    closed.add( sql );
+                    return null;
+                default:
+                    return null;
+            }
+        } );
+    }
+}
@@ -28,15 +28,23 @@ package org.hisp.quick.statementbuilder;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.quick.ConflictMode;
+import org.hisp.quick.CopyFormat;
 import org.hisp.quick.StatementBuilder;
 import org.hisp.quick.StatementDialect;
 import org.hisp.quick.batchhandler.AbstractBatchHandler;
+import org.hisp.quick.batchhandler.AnnotatedBatchHandler;
+import org.hisp.quick.model.Category;
+import org.hisp.quick.model.CategoryCode;
 import org.hisp.quick.model.DataElement;
 import org.hisp.quick.model.DataElementBatchHandler;
 import org.hisp.quick.model.DataValue;
 import org.hisp.quick.model.DataValueBatchHandler;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.hisp.quick.JdbcConfiguration;
 
 import static org.junit.Assert.*;
@@ -73,9 +81,296 @@ public class StatementBuilderTest
         assertEquals( expUpdateStatement, builder.getUpdateStatement( dvA ) );
         assertEquals( expDeleteStatement, builder.getDeleteStatement( dvA ) );
         assertEquals( expUniquenessStatment, builder.getUniquenessStatement( dvA ) );
+        assertEquals( "select what,where,when from datavalue;", builder.getUniqueValuesStatement() );
         assertEquals( expDouble, builder.getDoubleColumnType() );
     }
+
+    @Test
+    public void testPostgreSqlPreparedInsertStatement()
+    {
+        AbstractBatchHandler<DataValue> dataValueHandler = new DataValueBatchHandler( postgreSqlJdbcConfig );
+        AbstractBatchHandler<DataElement> dataElementHandler = new DataElementBatchHandler( postgreSqlJdbcConfig );
+
+        StatementBuilder<DataValue> dataValueBuilder = new PostgreSqlStatementBuilder<>( dataValueHandler );
+        StatementBuilder<DataElement> dataElementBuilder = new PostgreSqlStatementBuilder<>( dataElementHandler );
+
+        assertEquals( "insert into datavalue (what,where,when,value) values (?,?,?,?)",
+            dataValueBuilder.getPreparedInsertStatement() );
+        assertEquals( "insert into dataelement (id,code,name,description) values (nextval('dataelement_sequence'),?,?,?)",
+            dataElementBuilder.getPreparedInsertStatement() );
+    }
     
+    @Test
+    public void testPostgreSqlAllocatedIdStatements()
+    {
+        AbstractBatchHandler<DataElement> batchHandler = new DataElementBatchHandler( postgreSqlJdbcConfig );
+        batchHandler.setIdBlockSize( 100 );
+
+        PostgreSqlStatementBuilder<DataElement> builder = new PostgreSqlStatementBuilder<>( batchHandler );
+
+        assertEquals( "select nextval('dataelement_sequence') from generate_series(1,100);", builder.getSequenceBlockStatement( 100 ) );
+        assertEquals( "insert into dataelement (id,code,name,description) values (?,?,?,?)", builder.getPreparedInsertStatement() );
+        assertEquals( "copy dataelement (id,code,name,description) from stdin", builder.getCopyStatement( CopyFormat.TEXT ) );
+        assertNull( new PostgreSqlStatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) ).getSequenceBlockStatement( 100 ) );
+    }
+
+    @Test
+    public void testAppendInsertStatementValues()
+    {
+        AbstractBatchHandler<DataElement> batchHandler = new DataElementBatchHandler( postgreSqlJdbcConfig );
+
+        StatementBuilder<DataElement> builder = new PostgreSqlStatementBuilder<>( batchHandler );
+
+        StringBuilder buffer = new StringBuilder( "insert into dataelement (id,code,name,description) values " );
+
+        builder.appendInsertStatementValues( new DataElement( "CodeA", "Name 'A'", null ), buffer );
+        builder.appendInsertStatementValues( new DataElement( "CodeB", "NameB\\", "DescriptionB" ), buffer );
+
+        assertEquals( "insert into dataelement (id,code,name,description) values " +
+            "(nextval('dataelement_sequence'),'CodeA','Name ''A''',null)," +
+            "(nextval('dataelement_sequence'),'CodeB','NameB','DescriptionB'),", buffer.toString() );
+    }
+
+    @Test
+    public void testStatementTemplatesCachedPerBuilder()
+    {
+        AbstractBatchHandler<DataValue> batchHandler = new DataValueBatchHandler( postgreSqlJdbcConfig );
+        AbstractStatementBuilder<DataValue> builder = new PostgreSqlStatementBuilder<>( batchHandler );
+
+        StatementTemplates templates = builder.getTemplates();
+
+        builder.resetTemplates();
+
+        assertSame( templates, builder.getTemplates() );
+
+        batchHandler.setConflictMode( ConflictMode.IGNORE );
+        builder.resetTemplates();
+
+        assertNotSame( templates, builder.getTemplates() );
+
+        batchHandler.setConflictMode( ConflictMode.FAIL );
+        builder.resetTemplates();
+
+        assertSame( templates, builder.getTemplates() );
+        assertEquals( "update datavalue set what=4,where=5,when=6,value='ValueB' where what=4 and where=5 and when=6;",
+            builder.getUpdateStatement( new DataValue( 4, 5, 6, "ValueB" ) ) );
+    }
+
+    @Test
+    public void testStatementTemplatesOfEntitiesOnSameTable()
+    {
+        StatementBuilder<Category> categoryBuilder = new PostgreSqlStatementBuilder<>(
+            new AnnotatedBatchHandler<>( postgreSqlJdbcConfig, Category.class ) );
+        StatementBuilder<CategoryCode> codeBuilder = new PostgreSqlStatementBuilder<>(
+            new AnnotatedBatchHandler<>( postgreSqlJdbcConfig, CategoryCode.class ) );
+
+        assertEquals( "insert into category (id,code,shortname,weight,active,created,parentid) values ",
+            categoryBuilder.getInsertStatementOpening() );
+        assertEquals( "insert into category (id,code) values ", codeBuilder.getInsertStatementOpening() );
+    }
+
+    @Test
+    public void testBulkUniquenessStatement()
+    {
+        StatementBuilder<DataValue> dataValueBuilder = new PostgreSqlStatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) );
+        StatementBuilder<DataElement> dataElementBuilder = new PostgreSqlStatementBuilder<>( new DataElementBatchHandler( postgreSqlJdbcConfig ) );
+
+        assertEquals( "select what,where,when from datavalue where (what,where,when) in ((1,2,3),(4,5,6));",
+            dataValueBuilder.getBulkUniquenessStatement( Arrays.asList( new DataValue( 1, 2, 3, "ValueA" ), new DataValue( 4, 5, 6, "ValueB" ) ) ) );
+        assertEquals( "select code from dataelement where code in ('CodeA','Code''B');",
+            dataElementBuilder.getBulkUniquenessStatement( Arrays.asList( new DataElement( "CodeA", "NameA", null ), new DataElement( "Code'B", "NameB", null ) ) ) );
+    }
+
+    @Test
+    public void testBulkSelectStatement()
+    {
+        StatementBuilder<DataValue> builder = new PostgreSqlStatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) );
+
+        assertEquals( "select * from datavalue where (what,where,when) in ((1,2,3));",
+            builder.getBulkSelectStatement( Arrays.asList( new DataValue( 1, 2, 3, "ValueA" ) ) ) );
+    }
+
+    @Test
+    public void testBulkUpdateStatements()
+    {
+        List<DataValue> dataValues = Arrays.asList( new DataValue( 1, 2, 3, "ValueA" ), new DataValue( 4, 5, 6, null ) );
+
+        assertEquals( "update datavalue t set value=v.c4 from (select what,where,when,value,what,where,when from datavalue where false " +
+            "union all values (1,2,3,'ValueA',1,2,3),(4,5,6,null,4,5,6)) v (c1,c2,c3,c4,c5,c6,c7) " +
+            "where t.what=v.c5 and t.where=v.c6 and t.when=v.c7;",
+            new PostgreSqlStatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) ).getBulkUpdateStatement( dataValues ) );
+
+        assertEquals( "merge into datavalue t using (values (1,2,3,'ValueA',1,2,3),(4,5,6,null,4,5,6)) v (c1,c2,c3,c4,c5,c6,c7) " +
+            "on (t.what=v.c5 and t.where=v.c6 and t.when=v.c7) when matched then update set value=v.c4;",
+            new H2StatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) ).getBulkUpdateStatement( dataValues ) );
+
+        assertEquals( "update datavalue t join (select 1 as c1,2 as c2,3 as c3,'ValueA' as c4,1 as c5,2 as c6,3 as c7 " +
+            "union all select 4,5,6,null,4,5,6) v on t.what=v.c5 and t.where=v.c6 and t.when=v.c7 set t.value=v.c4;",
+            new MySqlStatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) ).getBulkUpdateStatement( dataValues ) );
+    }
+
+    @Test
+    public void testBulkDeleteStatement()
+    {
+        StatementBuilder<DataValue> dataValueBuilder = new PostgreSqlStatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) );
+        StatementBuilder<DataElement> dataElementBuilder = new PostgreSqlStatementBuilder<>( new DataElementBatchHandler( postgreSqlJdbcConfig ) );
+
+        DataElement deA = new DataElement( "CodeA", "NameA", null );
+        DataElement deB = new DataElement( "CodeB", "NameB", null );
+        deA.setId( 1 );
+        deB.setId( 2 );
+
+        assertEquals( "delete from datavalue where (what,where,when) in ((1,2,3),(4,5,6));",
+            dataValueBuilder.getBulkDeleteStatement( Arrays.asList( new DataValue( 1, 2, 3, "ValueA" ), new DataValue( 4, 5, 6, "ValueB" ) ) ) );
+        assertEquals( "delete from dataelement where id in (1,2);", dataElementBuilder.getBulkDeleteStatement( Arrays.asList( deA, deB ) ) );
+    }
+
+    @Test
+    public void testMaxBulkSize()
+    {
+        assertEquals( 5000, new PostgreSqlStatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) ).getMaxBulkSize() );
+        assertEquals( 1000, new MySqlStatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) ).getMaxBulkSize() );
+        assertEquals( 1000, new H2StatementBuilder<>( new DataValueBatchHandler( postgreSqlJdbcConfig ) ).getMaxBulkSize() );
+    }
+
+    @Test
+    public void testUpsertStatements()
+    {
+        assertUpsert( new PostgreSqlStatementBuilder<>( upsertHandler() ),
+            "insert into datavalue (what,where,when,value) values ",
+            " on conflict (what,where,when) do update set value=excluded.value" );
+        assertUpsert( new MySqlStatementBuilder<>( upsertHandler() ),
+            "insert into datavalue (what,where,when,value) values ",
+            " on duplicate key update value=values(value)" );
+        assertUpsert( new H2StatementBuilder<>( upsertHandler() ),
+            "merge into datavalue (what,where,when,value) key (what,where,when) values ", "" );
+        assertUpsert( new HsqlStatementBuilder<>( upsertHandler() ),
+            "merge into datavalue t using (values ",
+            ") v (c1,c2,c3,c4) on (t.what=v.c1 and t.where=v.c2 and t.when=v.c3) when matched then update set value=v.c4 " +
+            "when not matched then insert (what,where,when,value) values (v.c1,v.c2,v.c3,v.c4)" );
+
+        AbstractBatchHandler<DataElement> dataElementHandler = new DataElementBatchHandler( postgreSqlJdbcConfig );
+        dataElementHandler.setConflictMode( ConflictMode.UPDATE );
+
+        assertEquals( "insert into dataelement (id,code,name,description) values (nextval('dataelement_sequence'),?,?,?) " +
+            "on conflict (code) do update set name=excluded.name,description=excluded.description",
+            new PostgreSqlStatementBuilder<>( dataElementHandler ).getPreparedInsertStatement() );
+        assertEquals( ") v (c1,c2,c3,c4) on (t.code=v.c2) when matched then update set name=v.c3,description=v.c4 " +
+            "when not matched then insert (id,code,name,description) values (v.c1,v.c2,v.c3,v.c4)",
+            new H2StatementBuilder<>( dataElementHandler ).getInsertStatementClosing() );
+    }
+
+    @Test
+    public void testPostgreSqlExclusiveUpsertStatements()
+    {
+        AbstractBatchHandler<Category> batchHandler = new AnnotatedBatchHandler<>( postgreSqlJdbcConfig, Category.class );
+        batchHandler.setConflictMode( ConflictMode.UPDATE );
+
+        StatementBuilder<Category> builder = new PostgreSqlStatementBuilder<>( batchHandler );
+
+        assertEquals( "merge into category t using (select id,code,shortname,weight,active,created,parentid " +
+            "from category where false union all values ", builder.getInsertStatementOpening() );
+        assertEquals( ") v (c1,c2,c3,c4,c5,c6,c7) on (t.code=v.c2 or t.shortname=v.c3) " +
+            "when matched then update set weight=v.c4,active=v.c5,created=v.c6,parentid=v.c7 " +
+            "when not matched then insert (id,code,shortname,weight,active,created,parentid) " +
+            "values (v.c1,v.c2,v.c3,v.c4,v.c5,v.c6,v.c7)", builder.getInsertStatementClosing() );
+    }
+
+    @Test
+    public void testOverriddenLegacyHooks()
+    {
+        AbstractBatchHandler<DataValue> batchHandler = new DataValueBatchHandler( postgreSqlJdbcConfig );
+
+        StatementBuilder<DataValue> encodingBuilder = new PostgreSqlStatementBuilder<DataValue>( batchHandler )
+        {
+            @Override
+            protected String encodeString( String value )
+            {
+                return "E" + super.encodeString( value );
+            }
+        };
+
+        StatementBuilder<DataValue> valuesBuilder = new PostgreSqlStatementBuilder<DataValue>( batchHandler )
+        {
+            @Override
+            public String getInsertStatementValues( DataValue object )
+            {
+                return "(default),";
+            }
+        };
+
+        DataValue dvA = new DataValue( 1, 2, 3, "Value'A" );
+
+        StringBuilder builder = new StringBuilder();
+        encodingBuilder.appendInsertStatementValues( dvA, builder );
+        valuesBuilder.appendInsertStatementValues( dvA, builder );
+
+        assertEquals( "(1,2,3,E'Value''A'),(default),", builder.toString() );
+        assertEquals( "select * from datavalue where what=1 and where=2 and when=3;",
+            encodingBuilder.getSelectStatement( dvA ) );
+    }
+
+    @Test
+    public void testResetTemplates()
+    {
+        AbstractBatchHandler<DataElement> batchHandler = new DataElementBatchHandler( postgreSqlJdbcConfig );
+        AbstractStatementBuilder<DataElement> builder = new PostgreSqlStatementBuilder<>( batchHandler );
+
+        assertFalse( builder.getInsertStatementClosing().contains( "on conflict" ) );
+
+        batchHandler.setConflictMode( ConflictMode.IGNORE );
+
+        assertFalse( builder.getInsertStatementClosing().contains( "on conflict" ) );
+
+        builder.resetTemplates();
+
+        assertTrue( builder.getInsertStatementClosing().contains( "on conflict do nothing" ) );
+    }
+
+    @Test
+    public void testInsertIgnoreStatements()
+    {
+        assertUpsert( new PostgreSqlStatementBuilder<>( ignoreHandler() ),
+            "insert into datavalue (what,where,when,value) values ", " on conflict do nothing" );
+        assertUpsert( new MySqlStatementBuilder<>( ignoreHandler() ),
+            "insert ignore into datavalue (what,where,when,value) values ", "" );
+        assertUpsert( new H2StatementBuilder<>( ignoreHandler() ),
+            "merge into datavalue t using (values ",
+            ") v (c1,c2,c3,c4) on (t.what=v.c1 and t.where=v.c2 and t.when=v.c3) " +
+            "when not matched then insert (what,where,when,value) values (v.c1,v.c2,v.c3,v.c4)" );
+    }
+
+    private AbstractBatchHandler<DataValue> ignoreHandler()
+    {
+        AbstractBatchHandler<DataValue> batchHandler = new DataValueBatchHandler( postgreSqlJdbcConfig );
+        batchHandler.setConflictMode( ConflictMode.IGNORE );
+        return batchHandler;
+    }
+
+    private AbstractBatchHandler<DataValue> upsertHandler()
+    {
+        AbstractBatchHandler<DataValue> batchHandler = new DataValueBatchHandler( postgreSqlJdbcConfig );
+        batchHandler.setConflictMode( ConflictMode.UPDATE );
+        return batchHandler;
+    }
+
+    private void assertUpsert( StatementBuilder<DataValue> builder, String expOpening, String expClosing )
+    {
+        assertEquals( expOpening, builder.getInsertStatementOpening() );
+        assertEquals( expClosing, builder.getInsertStatementClosing() );
+    }
+
+    @Test
+    public void testPostgreSqlCopyStatement()
+    {
+        AbstractBatchHandler<DataValue> batchHandler = new DataValueBatchHandler( postgreSqlJdbcConfig );
+
+        PostgreSqlStatementBuilder<DataValue> builder = new PostgreSqlStatementBuilder<>( batchHandler );
+
+        assertEquals( "copy datavalue (what,where,when,value) from stdin", builder.getCopyStatement( CopyFormat.TEXT ) );
+        assertEquals( "copy datavalue (what,where,when,value) from stdin with (format csv)", builder.getCopyStatement( CopyFormat.CSV ) );
+    }
+
     @Test
     public void testDataElementPostgreSqlStatements()
     {